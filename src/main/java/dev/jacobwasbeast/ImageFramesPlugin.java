@@ -3,6 +3,7 @@ package dev.jacobwasbeast;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
 import com.hypixel.hytale.server.core.modules.interaction.interaction.config.server.OpenCustomUIInteraction;
+import dev.jacobwasbeast.command.ImageFramesCacheCommand;
 import dev.jacobwasbeast.config.ImageFramesConfig;
 import dev.jacobwasbeast.interaction.ImageFrameBreakSystem;
 import dev.jacobwasbeast.interaction.ImageFrameInteractionSystem;
@@ -35,6 +36,7 @@ public class ImageFramesPlugin extends JavaPlugin {
         this.config = new ImageFramesConfig();
         this.store = new ImageFrameStore();
         this.runtimeManager = new ImageFrameRuntimeManager(this, store);
+        this.getCommandRegistry().registerCommand(new ImageFramesCacheCommand(this));
     }
 
     @Override
@@ -105,6 +107,9 @@ public class ImageFramesPlugin extends JavaPlugin {
     @Override
     protected void shutdown() {
         getLogger().at(Level.INFO).log("ImageFrames shutting down.");
+        if (runtimeManager != null) {
+            runtimeManager.shutdown();
+        }
     }
 
     public static ImageFramesPlugin getInstance() {
@@ -0,0 +1,117 @@
+package dev.jacobwasbeast.command;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.basecommands.CommandBase;
+import dev.jacobwasbeast.ImageFramesPlugin;
+import dev.jacobwasbeast.runtime.ImageFrameCanvasCache;
+import dev.jacobwasbeast.runtime.ImageFrameImageCache;
+import dev.jacobwasbeast.runtime.ImageFrameRenderTask;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nonnull;
+
+/**
+ * {@code /imageframescache} prints image cache counters and renders in progress; {@code /imageframescache urls}
+ * lists cached URLs with their size, last access and how many frames show them.
+ */
+public class ImageFramesCacheCommand extends CommandBase {
+    private static final int MAX_LISTED_URLS = 50;
+
+    private final ImageFramesPlugin plugin;
+
+    public ImageFramesCacheCommand(ImageFramesPlugin plugin) {
+        super("imageframescache", "Show ImageFrames image cache statistics");
+        this.plugin = plugin;
+        addSubCommand(new UrlsCommand(plugin));
+    }
+
+    @Override
+    protected void executeSync(@Nonnull CommandContext context) {
+        if (plugin.getRuntimeManager() == null) {
+            context.sendMessage(Message.raw("ImageFrames is not initialized yet."));
+            return;
+        }
+        ImageFrameImageCache.Stats stats = plugin.getRuntimeManager().getImageCache().getStats();
+        ImageFrameCanvasCache canvas = plugin.getRuntimeManager().getCanvasCache();
+        context.sendMessage(Message.raw(String.format(Locale.ROOT,
+                "Memory (%s): %d entries, %s / %s, hits %d, misses %d, evictions %d",
+                stats.memoryTier, stats.memoryEntries, formatBytes(stats.memoryResidentBytes),
+                formatBytes(stats.memoryMaxBytes), stats.memoryHits, stats.memoryMisses, stats.memoryEvictions)));
+        context.sendMessage(Message.raw(String.format(Locale.ROOT,
+                "Disk: %d urls -> %d blobs (%d pinned), %s / %s, hits %d, misses %d, evictions %d, dedup hits %d",
+                stats.urlCount, stats.blobCount, stats.pinnedBlobs, formatBytes(stats.diskBytes),
+                formatBytes(stats.diskMaxBytes), stats.diskHits, stats.diskMisses, stats.diskEvictions,
+                stats.dedupHits)));
+        double avgDecodeMs = stats.decodes > 0 ? stats.decodeNanos / 1_000_000.0 / stats.decodes : 0.0;
+        context.sendMessage(Message.raw(String.format(Locale.ROOT,
+                "Downloads: %d (%s), in flight %d, revalidations %d (%d unchanged); decodes: %d (%d from mips), "
+                        + "avg %.1f ms",
+                stats.downloads, formatBytes(stats.downloadedBytes), stats.inFlight, stats.revalidations,
+                stats.notModified, stats.decodes, stats.mipDecodes, avgDecodeMs)));
+        for (Map.Entry<String, Long> host : plugin.getRuntimeManager().getDownloader().getOpenHosts().entrySet()) {
+            context.sendMessage(Message.raw(String.format(Locale.ROOT, "Host %s unavailable, retry in %d s",
+                    host.getKey(), (host.getValue() + 999L) / 1000L)));
+        }
+        context.sendMessage(Message.raw(String.format(Locale.ROOT,
+                "Canvases: %d in memory (%s / %s), disk %s / %s, hits %d, disk hits %d, misses %d",
+                canvas.getMemoryEntryCount(), formatBytes(canvas.getMemoryResidentBytes()),
+                formatBytes(canvas.getMemoryMaxBytes()), formatBytes(canvas.getDiskBytes()),
+                formatBytes(canvas.getDiskMaxBytes()), canvas.getHits(), canvas.getDiskHits(), canvas.getMisses())));
+        long now = System.currentTimeMillis();
+        for (ImageFrameRenderTask render : plugin.getRuntimeManager().getActiveRenders()) {
+            context.sendMessage(Message.raw(String.format(Locale.ROOT, "Rendering %s: %s, tiles %d/%d, %d s%s",
+                    render.getGroupId(), render.getStage(), render.getTilesDone(), render.getTilesTotal(),
+                    (now - render.getStartedAt()) / 1000L, render.isCancelled() ? " (cancelled)" : "")));
+        }
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024L) {
+            return bytes + " B";
+        }
+        if (bytes < 1024L * 1024L) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        if (bytes < 1024L * 1024L * 1024L) {
+            return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+        }
+        return String.format(Locale.ROOT, "%.2f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+
+    private static class UrlsCommand extends CommandBase {
+        private final ImageFramesPlugin plugin;
+
+        UrlsCommand(ImageFramesPlugin plugin) {
+            super("urls", "List cached image URLs, most recently used first");
+            this.plugin = plugin;
+        }
+
+        @Override
+        protected void executeSync(@Nonnull CommandContext context) {
+            if (plugin.getRuntimeManager() == null) {
+                context.sendMessage(Message.raw("ImageFrames is not initialized yet."));
+                return;
+            }
+            List<ImageFrameImageCache.UrlInfo> rows = plugin.getRuntimeManager().getImageCache().listUrls();
+            Map<String, Integer> groupCounts = plugin.getRuntimeManager().getGroupCountsByUrl();
+            if (rows.isEmpty()) {
+                context.sendMessage(Message.raw("No cached images."));
+                return;
+            }
+            int shown = Math.min(rows.size(), MAX_LISTED_URLS);
+            for (int i = 0; i < shown; i++) {
+                ImageFrameImageCache.UrlInfo row = rows.get(i);
+                context.sendMessage(Message.raw(String.format(Locale.ROOT, "%s  %s  frames=%d%s  last=%s",
+                        row.url, formatBytes(row.sizeBytes), groupCounts.getOrDefault(row.url, 0),
+                        (row.inMemory ? "  [mem]" : "") + (row.pinned ? "  [pinned]" : ""),
+                        Instant.ofEpochMilli(row.lastAccess))));
+            }
+            if (rows.size() > shown) {
+                context.sendMessage(Message.raw("... and " + (rows.size() - shown) + " more"));
+            }
+        }
+    }
+}
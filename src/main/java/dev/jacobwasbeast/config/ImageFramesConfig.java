@@ -11,6 +11,29 @@ import java.nio.file.Path;
 public class ImageFramesConfig extends BlockingDiskFile {
     private boolean ownerLockEnabled = true;
     private int tileSize = 256;
+    private int memoryCacheMaxMb = 256;
+    private int diskCacheMaxMb = 1024;
+    private int cacheSweepIntervalSeconds = 600;
+    private String memoryCacheTier = "heap";
+    private int canvasCacheMaxMb = 128;
+    private int canvasDiskCacheMaxMb = 512;
+    private int downloadMaxConcurrent = 8;
+    private int downloadMaxPerHost = 2;
+    private int downloadMaxMb = 32;
+    private int decodeMaxMegapixels = 32;
+    private int downloadRetries = 2;
+    private int downloadBackoffMs = 500;
+    private int hostFailureThreshold = 5;
+    private int hostCooldownSeconds = 60;
+    private int hostMaxRequestsPerSecond = 4;
+    private int startupRebuildParallelism = 4;
+    private int sourceRevalidateMinutes = 1440;
+    private int autoRefreshMinSeconds = 30;
+    private int animationMaxFrames = 24;
+    private int animationMinFrameMillis = 100;
+    private int animationSwapBudget = 256;
+    private String fileSourceDir = "";
+    private int dataUrlMaxKb = 64;
 
     public ImageFramesConfig() {
         super(Path.of("ImageFrames/config.json"));
@@ -26,6 +49,75 @@ public class ImageFramesConfig extends BlockingDiskFile {
         if (obj.has("tileSize")) {
             tileSize = Math.max(16, obj.get("tileSize").getAsInt());
         }
+        if (obj.has("memoryCacheMaxMb")) {
+            memoryCacheMaxMb = Math.max(0, obj.get("memoryCacheMaxMb").getAsInt());
+        }
+        if (obj.has("diskCacheMaxMb")) {
+            diskCacheMaxMb = Math.max(0, obj.get("diskCacheMaxMb").getAsInt());
+        }
+        if (obj.has("cacheSweepIntervalSeconds")) {
+            cacheSweepIntervalSeconds = Math.max(0, obj.get("cacheSweepIntervalSeconds").getAsInt());
+        }
+        if (obj.has("memoryCacheTier")) {
+            memoryCacheTier = normalizeMemoryCacheTier(obj.get("memoryCacheTier").getAsString());
+        }
+        if (obj.has("canvasCacheMaxMb")) {
+            canvasCacheMaxMb = Math.max(0, obj.get("canvasCacheMaxMb").getAsInt());
+        }
+        if (obj.has("canvasDiskCacheMaxMb")) {
+            canvasDiskCacheMaxMb = Math.max(0, obj.get("canvasDiskCacheMaxMb").getAsInt());
+        }
+        if (obj.has("downloadMaxConcurrent")) {
+            downloadMaxConcurrent = Math.max(1, obj.get("downloadMaxConcurrent").getAsInt());
+        }
+        if (obj.has("downloadMaxPerHost")) {
+            downloadMaxPerHost = Math.max(1, obj.get("downloadMaxPerHost").getAsInt());
+        }
+        if (obj.has("downloadMaxMb")) {
+            downloadMaxMb = Math.max(1, obj.get("downloadMaxMb").getAsInt());
+        }
+        if (obj.has("decodeMaxMegapixels")) {
+            decodeMaxMegapixels = Math.max(1, obj.get("decodeMaxMegapixels").getAsInt());
+        }
+        if (obj.has("downloadRetries")) {
+            downloadRetries = Math.max(0, obj.get("downloadRetries").getAsInt());
+        }
+        if (obj.has("downloadBackoffMs")) {
+            downloadBackoffMs = Math.max(0, obj.get("downloadBackoffMs").getAsInt());
+        }
+        if (obj.has("hostFailureThreshold")) {
+            hostFailureThreshold = Math.max(1, obj.get("hostFailureThreshold").getAsInt());
+        }
+        if (obj.has("hostCooldownSeconds")) {
+            hostCooldownSeconds = Math.max(0, obj.get("hostCooldownSeconds").getAsInt());
+        }
+        if (obj.has("hostMaxRequestsPerSecond")) {
+            hostMaxRequestsPerSecond = Math.max(0, obj.get("hostMaxRequestsPerSecond").getAsInt());
+        }
+        if (obj.has("startupRebuildParallelism")) {
+            startupRebuildParallelism = Math.max(1, obj.get("startupRebuildParallelism").getAsInt());
+        }
+        if (obj.has("sourceRevalidateMinutes")) {
+            sourceRevalidateMinutes = Math.max(0, obj.get("sourceRevalidateMinutes").getAsInt());
+        }
+        if (obj.has("autoRefreshMinSeconds")) {
+            autoRefreshMinSeconds = Math.max(1, obj.get("autoRefreshMinSeconds").getAsInt());
+        }
+        if (obj.has("animationMaxFrames")) {
+            animationMaxFrames = Math.max(1, obj.get("animationMaxFrames").getAsInt());
+        }
+        if (obj.has("animationMinFrameMillis")) {
+            animationMinFrameMillis = Math.max(50, obj.get("animationMinFrameMillis").getAsInt());
+        }
+        if (obj.has("animationSwapBudget")) {
+            animationSwapBudget = Math.max(1, obj.get("animationSwapBudget").getAsInt());
+        }
+        if (obj.has("fileSourceDir")) {
+            fileSourceDir = obj.get("fileSourceDir").getAsString().trim();
+        }
+        if (obj.has("dataUrlMaxKb")) {
+            dataUrlMaxKb = Math.max(0, obj.get("dataUrlMaxKb").getAsInt());
+        }
     }
 
     @Override
@@ -36,6 +128,29 @@ public class ImageFramesConfig extends BlockingDiskFile {
         JsonObject obj = new JsonObject();
         obj.addProperty("ownerLockEnabled", ownerLockEnabled);
         obj.addProperty("tileSize", tileSize);
+        obj.addProperty("memoryCacheMaxMb", memoryCacheMaxMb);
+        obj.addProperty("diskCacheMaxMb", diskCacheMaxMb);
+        obj.addProperty("cacheSweepIntervalSeconds", cacheSweepIntervalSeconds);
+        obj.addProperty("memoryCacheTier", memoryCacheTier);
+        obj.addProperty("canvasCacheMaxMb", canvasCacheMaxMb);
+        obj.addProperty("canvasDiskCacheMaxMb", canvasDiskCacheMaxMb);
+        obj.addProperty("downloadMaxConcurrent", downloadMaxConcurrent);
+        obj.addProperty("downloadMaxPerHost", downloadMaxPerHost);
+        obj.addProperty("downloadMaxMb", downloadMaxMb);
+        obj.addProperty("decodeMaxMegapixels", decodeMaxMegapixels);
+        obj.addProperty("downloadRetries", downloadRetries);
+        obj.addProperty("downloadBackoffMs", downloadBackoffMs);
+        obj.addProperty("hostFailureThreshold", hostFailureThreshold);
+        obj.addProperty("hostCooldownSeconds", hostCooldownSeconds);
+        obj.addProperty("hostMaxRequestsPerSecond", hostMaxRequestsPerSecond);
+        obj.addProperty("startupRebuildParallelism", startupRebuildParallelism);
+        obj.addProperty("sourceRevalidateMinutes", sourceRevalidateMinutes);
+        obj.addProperty("autoRefreshMinSeconds", autoRefreshMinSeconds);
+        obj.addProperty("animationMaxFrames", animationMaxFrames);
+        obj.addProperty("animationMinFrameMillis", animationMinFrameMillis);
+        obj.addProperty("animationSwapBudget", animationSwapBudget);
+        obj.addProperty("fileSourceDir", fileSourceDir);
+        obj.addProperty("dataUrlMaxKb", dataUrlMaxKb);
         bufferedWriter.write(obj.toString());
     }
 
@@ -76,4 +191,204 @@ public class ImageFramesConfig extends BlockingDiskFile {
     public void setTileSize(int tileSize) {
         this.tileSize = Math.max(16, tileSize);
     }
+
+    public int getMemoryCacheMaxMb() {
+        return memoryCacheMaxMb;
+    }
+
+    public void setMemoryCacheMaxMb(int memoryCacheMaxMb) {
+        this.memoryCacheMaxMb = Math.max(0, memoryCacheMaxMb);
+    }
+
+    public int getDiskCacheMaxMb() {
+        return diskCacheMaxMb;
+    }
+
+    public void setDiskCacheMaxMb(int diskCacheMaxMb) {
+        this.diskCacheMaxMb = Math.max(0, diskCacheMaxMb);
+    }
+
+    public int getCacheSweepIntervalSeconds() {
+        return cacheSweepIntervalSeconds;
+    }
+
+    public void setCacheSweepIntervalSeconds(int cacheSweepIntervalSeconds) {
+        this.cacheSweepIntervalSeconds = Math.max(0, cacheSweepIntervalSeconds);
+    }
+
+    /**
+     * Where source images are kept in memory: {@code heap} (decoded, the default), {@code offheap} (decoded, in direct
+     * buffers outside the Java heap) or {@code compressed} (encoded bytes only, decoded again for every render).
+     */
+    public String getMemoryCacheTier() {
+        return memoryCacheTier;
+    }
+
+    public void setMemoryCacheTier(String memoryCacheTier) {
+        this.memoryCacheTier = normalizeMemoryCacheTier(memoryCacheTier);
+    }
+
+    private static String normalizeMemoryCacheTier(String value) {
+        String tier = value != null ? value.trim().toLowerCase(java.util.Locale.ROOT) : "";
+        return "offheap".equals(tier) || "compressed".equals(tier) ? tier : "heap";
+    }
+
+    public int getCanvasCacheMaxMb() {
+        return canvasCacheMaxMb;
+    }
+
+    public void setCanvasCacheMaxMb(int canvasCacheMaxMb) {
+        this.canvasCacheMaxMb = Math.max(0, canvasCacheMaxMb);
+    }
+
+    public int getCanvasDiskCacheMaxMb() {
+        return canvasDiskCacheMaxMb;
+    }
+
+    public void setCanvasDiskCacheMaxMb(int canvasDiskCacheMaxMb) {
+        this.canvasDiskCacheMaxMb = Math.max(0, canvasDiskCacheMaxMb);
+    }
+
+    public int getDownloadMaxConcurrent() {
+        return downloadMaxConcurrent;
+    }
+
+    public void setDownloadMaxConcurrent(int downloadMaxConcurrent) {
+        this.downloadMaxConcurrent = Math.max(1, downloadMaxConcurrent);
+    }
+
+    public int getDownloadMaxPerHost() {
+        return downloadMaxPerHost;
+    }
+
+    public void setDownloadMaxPerHost(int downloadMaxPerHost) {
+        this.downloadMaxPerHost = Math.max(1, downloadMaxPerHost);
+    }
+
+    public int getDownloadMaxMb() {
+        return downloadMaxMb;
+    }
+
+    public void setDownloadMaxMb(int downloadMaxMb) {
+        this.downloadMaxMb = Math.max(1, downloadMaxMb);
+    }
+
+    public int getDecodeMaxMegapixels() {
+        return decodeMaxMegapixels;
+    }
+
+    public void setDecodeMaxMegapixels(int decodeMaxMegapixels) {
+        this.decodeMaxMegapixels = Math.max(1, decodeMaxMegapixels);
+    }
+
+    public int getDownloadRetries() {
+        return downloadRetries;
+    }
+
+    public void setDownloadRetries(int downloadRetries) {
+        this.downloadRetries = Math.max(0, downloadRetries);
+    }
+
+    public int getDownloadBackoffMs() {
+        return downloadBackoffMs;
+    }
+
+    public void setDownloadBackoffMs(int downloadBackoffMs) {
+        this.downloadBackoffMs = Math.max(0, downloadBackoffMs);
+    }
+
+    public int getHostFailureThreshold() {
+        return hostFailureThreshold;
+    }
+
+    public void setHostFailureThreshold(int hostFailureThreshold) {
+        this.hostFailureThreshold = Math.max(1, hostFailureThreshold);
+    }
+
+    public int getHostCooldownSeconds() {
+        return hostCooldownSeconds;
+    }
+
+    public void setHostCooldownSeconds(int hostCooldownSeconds) {
+        this.hostCooldownSeconds = Math.max(0, hostCooldownSeconds);
+    }
+
+    public int getHostMaxRequestsPerSecond() {
+        return hostMaxRequestsPerSecond;
+    }
+
+    public void setHostMaxRequestsPerSecond(int hostMaxRequestsPerSecond) {
+        this.hostMaxRequestsPerSecond = Math.max(0, hostMaxRequestsPerSecond);
+    }
+
+    public int getStartupRebuildParallelism() {
+        return startupRebuildParallelism;
+    }
+
+    public void setStartupRebuildParallelism(int startupRebuildParallelism) {
+        this.startupRebuildParallelism = Math.max(1, startupRebuildParallelism);
+    }
+
+    public int getSourceRevalidateMinutes() {
+        return sourceRevalidateMinutes;
+    }
+
+    public void setSourceRevalidateMinutes(int sourceRevalidateMinutes) {
+        this.sourceRevalidateMinutes = Math.max(0, sourceRevalidateMinutes);
+    }
+
+    public int getAutoRefreshMinSeconds() {
+        return autoRefreshMinSeconds;
+    }
+
+    public void setAutoRefreshMinSeconds(int autoRefreshMinSeconds) {
+        this.autoRefreshMinSeconds = Math.max(1, autoRefreshMinSeconds);
+    }
+
+    public int getAnimationMaxFrames() {
+        return animationMaxFrames;
+    }
+
+    public void setAnimationMaxFrames(int animationMaxFrames) {
+        this.animationMaxFrames = Math.max(1, animationMaxFrames);
+    }
+
+    public int getAnimationMinFrameMillis() {
+        return animationMinFrameMillis;
+    }
+
+    public void setAnimationMinFrameMillis(int animationMinFrameMillis) {
+        this.animationMinFrameMillis = Math.max(50, animationMinFrameMillis);
+    }
+
+    public int getAnimationSwapBudget() {
+        return animationSwapBudget;
+    }
+
+    public void setAnimationSwapBudget(int animationSwapBudget) {
+        this.animationSwapBudget = Math.max(1, animationSwapBudget);
+    }
+
+    /**
+     * Directory {@code file:} image URLs are read from; empty (the default) turns them off. A directory that overlaps
+     * the image or canvas cache is refused.
+     */
+    public String getFileSourceDir() {
+        return fileSourceDir;
+    }
+
+    public void setFileSourceDir(String fileSourceDir) {
+        this.fileSourceDir = fileSourceDir != null ? fileSourceDir.trim() : "";
+    }
+
+    /**
+     * Longest {@code data:} image URL accepted, in KB; 0 turns them off. The whole URL is stored with the frame.
+     */
+    public int getDataUrlMaxKb() {
+        return dataUrlMaxKb;
+    }
+
+    public void setDataUrlMaxKb(int dataUrlMaxKb) {
+        this.dataUrlMaxKb = Math.max(0, dataUrlMaxKb);
+    }
 }
@@ -40,6 +40,8 @@ public class ImageFrameBreakSystem extends EntityEventSystem<EntityStore, BreakB
         }
 
         var world = store.getExternalData().getWorld();
+        // Covers frames still rendering their first image, which are not in the store yet.
+        plugin.getRuntimeManager().cancelRendersAt(world.getName(), event.getTargetBlock());
         var group = plugin.getStore().getGroupByPos(world.getName(), event.getTargetBlock());
         if (group != null) {
             int count = Math.max(0, group.sizeX * group.sizeY * group.sizeZ);
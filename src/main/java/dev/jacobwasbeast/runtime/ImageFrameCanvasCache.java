@@ -0,0 +1,279 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * Cache of processed canvases: a source already scaled, rotated, flipped, padded and underlaid for one frame
+ * configuration. Keyed by the source's content hash plus every input of that pipeline, so a canvas is valid for as
+ * long as the key matches. Recent canvases stay decoded in memory; all of them are kept as PNGs under {@code dir},
+ * which is what lets a restart rebuild skip resampling.
+ */
+public class ImageFrameCanvasCache {
+    // Bump when the canvas pipeline changes so stale canvases on disk are never matched.
+    private static final String KEY_VERSION = "1";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+    private final ImageFrameMemoryCache memory;
+    private final Object diskLock = new Object();
+    private final Set<String> pendingWrites = ConcurrentHashMap.newKeySet();
+    private volatile Executor writeExecutor = Runnable::run;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long diskMaxBytes;
+    private long diskBytes = -1L;
+
+    public ImageFrameCanvasCache(Path dir, long memoryMaxBytes, long diskMaxBytes) {
+        this.dir = dir;
+        this.memory = new ImageFrameMemoryCache(memoryMaxBytes);
+        this.diskMaxBytes = Math.max(0L, diskMaxBytes);
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    public static String key(String sourceHash, ImageFrameSourceRegion region, int targetW, int targetH, String fit,
+            int rot, boolean flipX, boolean flipY, String blockKind) {
+        String regionKey = region.isFull()
+                ? "full"
+                : region.x + "," + region.y + "," + region.width + "," + region.height;
+        return KEY_VERSION + "|" + sourceHash + "|" + regionKey + "|" + targetW + "x" + targetH + "|" + fit + "|" + rot
+                + "|" + flipX + "|" + flipY + "|" + blockKind;
+    }
+
+    /**
+     * Returns the canvas stored under {@code key}, or null. The returned image is shared and must not be drawn on.
+     */
+    public BufferedImage get(String key) {
+        ImageFrameSourceHandle cached = memory.acquire(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.image();
+        }
+        Path path = pathFor(key);
+        BufferedImage img = null;
+        // Files are only ever replaced by an atomic rename, so they can be read without the lock.
+        if (Files.exists(path)) {
+            try {
+                img = ImageIO.read(new ByteArrayInputStream(Files.readAllBytes(path)));
+                if (img != null) {
+                    Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                }
+            } catch (IOException ignored) {
+            }
+            if (img == null) {
+                synchronized (diskLock) {
+                    ensureDiskScanned();
+                    deleteLocked(path);
+                }
+            }
+        }
+        if (img == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        memory.put(key, img, null);
+        return img;
+    }
+
+    /**
+     * Stores {@code canvas} under {@code key}. It is in memory straight away; the PNG is written on the write
+     * executor, and a write that fails only means the canvas is rendered again after a restart.
+     */
+    public void put(String key, BufferedImage canvas) {
+        if (key == null || canvas == null) {
+            return;
+        }
+        memory.put(key, canvas, null);
+        // The same key always holds the same pixels, so a write already under way covers this one.
+        if (diskMaxBytes <= 0L || !pendingWrites.add(key)) {
+            return;
+        }
+        try {
+            writeExecutor.execute(() -> {
+                try {
+                    writeToDisk(key, canvas);
+                } catch (IOException | RuntimeException ignored) {
+                } finally {
+                    pendingWrites.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingWrites.remove(key);
+        }
+    }
+
+    /**
+     * Runs the PNG writes of {@link #put}; by default they run on the caller's thread.
+     */
+    public void setWriteExecutor(Executor executor) {
+        this.writeExecutor = executor != null ? executor : Runnable::run;
+    }
+
+    private void writeToDisk(String key, BufferedImage canvas) throws IOException {
+        // Encoding and writing happen outside the lock; it only covers the rename and the byte count.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(canvas, "png", out);
+        Path path = pathFor(key);
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), TMP_SUFFIX);
+        try {
+            Files.write(tmp, out.toByteArray());
+            synchronized (diskLock) {
+                ensureDiskScanned();
+                long previous = Files.exists(path) ? Files.size(path) : 0L;
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                diskBytes += out.size() - previous;
+                trimDiskLocked();
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public void clear() {
+        memory.clear();
+        synchronized (diskLock) {
+            if (Files.isDirectory(dir)) {
+                try (var stream = Files.list(dir)) {
+                    for (Path path : (Iterable<Path>) stream::iterator) {
+                        Files.deleteIfExists(path);
+                    }
+                } catch (IOException ignored) {
+                }
+            }
+            diskBytes = 0L;
+        }
+    }
+
+    public void setMemoryMaxBytes(long maxBytes) {
+        memory.setMaxBytes(maxBytes);
+    }
+
+    public long getMemoryMaxBytes() {
+        return memory.getMaxBytes();
+    }
+
+    public long getMemoryResidentBytes() {
+        return memory.getResidentBytes();
+    }
+
+    public int getMemoryEntryCount() {
+        return memory.size();
+    }
+
+    public void setDiskMaxBytes(long maxBytes) {
+        this.diskMaxBytes = Math.max(0L, maxBytes);
+        synchronized (diskLock) {
+            ensureDiskScanned();
+            trimDiskLocked();
+        }
+    }
+
+    public long getDiskMaxBytes() {
+        return diskMaxBytes;
+    }
+
+    public long getDiskBytes() {
+        synchronized (diskLock) {
+            ensureDiskScanned();
+            return diskBytes;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private Path pathFor(String key) {
+        return dir.resolve(ImageFrameImageCache.sha256(key.getBytes(StandardCharsets.UTF_8)) + ".png");
+    }
+
+    private void ensureDiskScanned() {
+        if (diskBytes >= 0L) {
+            return;
+        }
+        long total = 0L;
+        if (Files.isDirectory(dir)) {
+            try (var stream = Files.list(dir)) {
+                for (Path path : (Iterable<Path>) stream::iterator) {
+                    // Writes in progress are counted when they are renamed into place.
+                    if (!path.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                        total += Files.size(path);
+                    }
+                }
+            } catch (IOException ignored) {
+            }
+        }
+        diskBytes = total;
+    }
+
+    private void trimDiskLocked() {
+        if (diskBytes <= diskMaxBytes || !Files.isDirectory(dir)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (var stream = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                if (!path.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                    files.add(path);
+                }
+            }
+        } catch (IOException ignored) {
+            return;
+        }
+        files.sort(Comparator.comparingLong(ImageFrameCanvasCache::lastModified));
+        for (Path path : files) {
+            if (diskBytes <= diskMaxBytes) {
+                break;
+            }
+            deleteLocked(path);
+        }
+    }
+
+    private void deleteLocked(Path path) {
+        try {
+            long size = Files.size(path);
+            if (Files.deleteIfExists(path)) {
+                diskBytes -= size;
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Byte-bounded LRU that keeps only the encoded source bytes and decodes them again for every borrow. An encoded
+ * image is usually an order of magnitude smaller than its raster, so far more sources fit in the same budget, at
+ * the cost of one decode per render.
+ */
+public class ImageFrameCompressedCache implements ImageFrameMemoryTier {
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong decodes = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final ImageFrameDecoder decoder;
+    private volatile Predicate<String> pinned = key -> false;
+    private long maxBytes;
+    private long residentBytes;
+
+    public ImageFrameCompressedCache(long maxBytes, ImageFrameDecoder decoder) {
+        this.maxBytes = Math.max(0L, maxBytes);
+        this.decoder = decoder;
+    }
+
+    @Override
+    public ImageFrameSourceHandle acquire(String key) {
+        byte[] encoded;
+        synchronized (this) {
+            encoded = entries.get(key);
+        }
+        if (encoded == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        ImageFrameSourceHandle handle = decode(key, encoded);
+        if (handle != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return handle;
+    }
+
+    @Override
+    public ImageFrameSourceHandle acquireQuiet(String key) {
+        byte[] encoded;
+        synchronized (this) {
+            encoded = entries.get(key);
+        }
+        return encoded != null ? decode(key, encoded) : null;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public boolean keepsDecodedPixels() {
+        return false;
+    }
+
+    @Override
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    @Override
+    public synchronized void put(String key, BufferedImage image, byte[] encoded) {
+        if (key == null || encoded == null || encoded.length == 0) {
+            return;
+        }
+        remove(key);
+        if (encoded.length > maxBytes) {
+            // Larger than the whole budget; the disk tier still serves it.
+            return;
+        }
+        entries.put(key, encoded);
+        residentBytes += encoded.length;
+        evictToBudget();
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        byte[] removed = entries.remove(key);
+        if (removed != null) {
+            residentBytes -= removed.length;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        residentBytes = 0L;
+    }
+
+    @Override
+    public void setPinFilter(Predicate<String> pinned) {
+        this.pinned = pinned != null ? pinned : key -> false;
+    }
+
+    @Override
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+        evictToBudget();
+    }
+
+    @Override
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getDecodes() {
+        return decodes.get();
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos.get();
+    }
+
+    private ImageFrameSourceHandle decode(String key, byte[] encoded) {
+        long start = System.nanoTime();
+        BufferedImage img;
+        try {
+            img = decoder.decode(encoded);
+        } catch (IOException e) {
+            img = null;
+        }
+        decodes.incrementAndGet();
+        decodeNanos.addAndGet(System.nanoTime() - start);
+        if (img == null) {
+            // These bytes decoded when they were stored; drop them so the next load goes back to disk.
+            remove(key);
+            return null;
+        }
+        return ImageFrameSourceHandle.unmanaged(img);
+    }
+
+    private void evictToBudget() {
+        // Unpinned entries go first, least recently used first; pinned ones only if that was not enough.
+        evictPass(false);
+        evictPass(true);
+    }
+
+    private void evictPass(boolean includePinned) {
+        Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+        while (residentBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> next = it.next();
+            if (!includePinned && pinned.test(next.getKey())) {
+                continue;
+            }
+            byte[] eldest = next.getValue();
+            it.remove();
+            residentBytes -= eldest.length;
+            evictions.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package dev.jacobwasbeast.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * {@code data:} URLs with the image inline, base64 or percent-encoded. The bytes are already at hand, so nothing is
+ * cached. The URL itself is stored with the frame, so its length is capped well below the decoder's byte limit.
+ */
+final class ImageFrameDataSource implements ImageFrameSource {
+    private final ImageFrameDecoder decoder;
+    private volatile int maxUrlLength;
+
+    ImageFrameDataSource(ImageFrameDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    /**
+     * Longest URL accepted, in characters; 0 turns the scheme off.
+     */
+    void setMaxUrlLength(int maxUrlLength) {
+        this.maxUrlLength = Math.max(0, maxUrlLength);
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return CachePolicy.NONE;
+    }
+
+    @Override
+    public Result load(String url, ImageFrameImageCache.Validators previous) throws IOException {
+        int maxLength = maxUrlLength;
+        if (maxLength <= 0) {
+            throw new IOException("data: images are disabled");
+        }
+        if (url.length() > maxLength) {
+            throw new IOException("data: URL is longer than " + maxLength + " characters");
+        }
+        int comma = url.indexOf(',');
+        if (!url.regionMatches(true, 0, "data:", 0, 5) || comma < 0) {
+            throw new IOException("Invalid data URL");
+        }
+        String header = url.substring(5, comma).toLowerCase(Locale.ROOT);
+        String payload = url.substring(comma + 1);
+        // Four base64 characters carry three bytes; reject oversized payloads before decoding them.
+        if (payload.length() / 4L * 3L > decoder.getMaxBytes()) {
+            throw new IOException("Image is larger than " + decoder.getMaxBytes() + " bytes");
+        }
+        boolean base64 = header.endsWith(";base64");
+        String contentType = base64 ? header.substring(0, header.length() - 7) : header;
+        int semi = contentType.indexOf(';');
+        contentType = semi >= 0 ? contentType.substring(0, semi) : contentType;
+        byte[] bytes;
+        try {
+            bytes = base64 ? Base64.getMimeDecoder().decode(payload) : percentDecode(payload);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid data URL", e);
+        }
+        if (bytes.length > decoder.getMaxBytes()) {
+            throw new IOException("Image is larger than " + decoder.getMaxBytes() + " bytes");
+        }
+        return Result.ofBytes(bytes, contentType.isEmpty() ? null : contentType);
+    }
+
+    private static byte[] percentDecode(String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            // Anything outside ASCII has to be percent-encoded; it has no single byte to stand for.
+            if (c > 0x7F) {
+                throw new IllegalArgumentException("Unencoded character in data URL");
+            }
+            if (c == '%' && i + 2 < text.length()) {
+                out.write(Integer.parseInt(text.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                out.write(c);
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,448 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+import org.w3c.dom.Node;
+
+/**
+ * Decodes source images without trusting their size. The header is read first, and the raster is decoded with
+ * source subsampling so it comes out at roughly twice the render target instead of at full resolution. Inputs over
+ * the byte limit are rejected outright, and the decoded pixel count is capped whatever the target.
+ */
+public class ImageFrameDecoder {
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024L * 1024L;
+    public static final long DEFAULT_MAX_PIXELS = 32L * 1000L * 1000L;
+    // Decode at this multiple of the target so the bicubic downscale still has detail to work with.
+    private static final int TARGET_OVERSAMPLE = 2;
+    // What browsers show a GIF frame for when it asks for no delay at all.
+    private static final int DEFAULT_FRAME_DELAY_MS = 100;
+    private static final String GIF_STREAM_FORMAT = "javax_imageio_gif_stream_1.0";
+    private static final String GIF_IMAGE_FORMAT = "javax_imageio_gif_image_1.0";
+
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+    private volatile long maxPixels = DEFAULT_MAX_PIXELS;
+
+    public BufferedImage decode(byte[] bytes) throws IOException {
+        Decoded decoded = decode(bytes, 0, 0);
+        return decoded != null ? decoded.image : null;
+    }
+
+    /**
+     * Decodes {@code bytes} for a render of {@code targetW x targetH} (0 for full resolution). Returns null if no
+     * reader understands the format.
+     */
+    public Decoded decode(byte[] bytes, int targetW, int targetH) throws IOException {
+        return decode(bytes, ImageFrameSourceRegion.FULL, targetW, targetH);
+    }
+
+    /**
+     * Like {@link #decode(byte[], int, int)}, but fine enough that {@code region} of the source covers the target.
+     */
+    public Decoded decode(byte[] bytes, ImageFrameSourceRegion region, int targetW, int targetH) throws IOException {
+        if (bytes.length > maxBytes) {
+            throw new IOException("Image is larger than " + maxBytes + " bytes");
+        }
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            return decode(in, region, targetW, targetH);
+        }
+    }
+
+    /**
+     * Decodes the image in {@code file} through a read-only memory map, so the encoded bytes are never copied onto
+     * the heap. Returns null if no reader understands the format.
+     */
+    public Decoded decode(Path file, int targetW, int targetH) throws IOException {
+        return decode(file, ImageFrameSourceRegion.FULL, targetW, targetH);
+    }
+
+    public Decoded decode(Path file, ImageFrameSourceRegion region, int targetW, int targetH) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxBytes || size > Integer.MAX_VALUE) {
+                throw new IOException("Image is larger than " + maxBytes + " bytes");
+            }
+            if (size == 0L) {
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            try (ImageInputStream in = new MappedImageInputStream(mapped)) {
+                return decode(in, region, targetW, targetH);
+            } finally {
+                // The raster is a heap copy by now; unmap so the file can be replaced or deleted straight away.
+                ImageFrameBuffers.free(mapped);
+            }
+        }
+    }
+
+    private Decoded decode(ImageInputStream in, ImageFrameSourceRegion region, int targetW, int targetH)
+            throws IOException {
+        Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+        if (readers == null || !readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(in, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            if (width <= 0 || height <= 0) {
+                throw new IOException("Invalid image size " + width + "x" + height);
+            }
+            int subsample = subsampleFor(width, height, region.scaleTargetWidth(targetW, width),
+                    region.scaleTargetHeight(targetH, height));
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (subsample > 1) {
+                param.setSourceSubsampling(subsample, subsample, 0, 0);
+            }
+            ImageTypeSpecifier packed = packedType(reader);
+            if (packed != null) {
+                param.setDestinationType(packed);
+            }
+            return new Decoded(toPacked(reader.read(0, param)), width, height, subsample);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Decodes the animated GIF in {@code file} into at most {@code maxFrames} fully composited frames for a render of
+     * {@code targetW x targetH}. Longer animations keep evenly spaced frames, each shown for the time of the frames
+     * it stands in for. The pixel cap covers all kept frames together. Returns null for anything but a GIF with more
+     * than one frame.
+     */
+    public Animation decodeAnimation(Path file, int targetW, int targetH, int maxFrames) throws IOException {
+        if (maxFrames < 2) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxBytes || size > Integer.MAX_VALUE) {
+                throw new IOException("Image is larger than " + maxBytes + " bytes");
+            }
+            if (size == 0L) {
+                return null;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            try (ImageInputStream in = new MappedImageInputStream(mapped)) {
+                return decodeAnimation(in, targetW, targetH, maxFrames);
+            } finally {
+                ImageFrameBuffers.free(mapped);
+            }
+        }
+    }
+
+    private Animation decodeAnimation(ImageInputStream in, int targetW, int targetH, int maxFrames)
+            throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            if (!"gif".equalsIgnoreCase(reader.getFormatName())) {
+                return null;
+            }
+            reader.setInput(in, false, false);
+            int count = reader.getNumImages(true);
+            if (count < 2) {
+                return null;
+            }
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            Node screen = child(metadataRoot(reader.getStreamMetadata(), GIF_STREAM_FORMAT),
+                    "LogicalScreenDescriptor");
+            if (screen != null) {
+                width = Math.max(width, intAttribute(screen, "logicalScreenWidth", 0));
+                height = Math.max(height, intAttribute(screen, "logicalScreenHeight", 0));
+            }
+            if (width <= 0 || height <= 0) {
+                throw new IOException("Invalid image size " + width + "x" + height);
+            }
+            // Frames are composited at full size, so unlike a still decode the screen itself has to fit the cap.
+            if ((long) width * height > maxPixels) {
+                throw new IOException("Animation is larger than " + maxPixels + " pixels");
+            }
+            int kept = Math.min(count, maxFrames);
+            int subsample = subsampleFor(width, height, targetW, targetH);
+            while (pixelsAt(width, height, subsample) * kept > maxPixels && subsample < Math.max(width, height)) {
+                subsample++;
+            }
+            int outW = (width + subsample - 1) / subsample;
+            int outH = (height + subsample - 1) / subsample;
+
+            BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            List<BufferedImage> frames = new ArrayList<>(kept);
+            List<Integer> delays = new ArrayList<>(kept);
+            int nextKept = 0;
+            for (int i = 0; i < count; i++) {
+                Node image = metadataRoot(reader.getImageMetadata(i), GIF_IMAGE_FORMAT);
+                Node descriptor = child(image, "ImageDescriptor");
+                Node control = child(image, "GraphicControlExtension");
+                String disposal = control != null ? attribute(control, "disposalMethod") : null;
+                int delay = control != null ? intAttribute(control, "delayTime", 0) * 10 : 0;
+                int left = descriptor != null ? intAttribute(descriptor, "imageLeftPosition", 0) : 0;
+                int top = descriptor != null ? intAttribute(descriptor, "imageTopPosition", 0) : 0;
+
+                if ((long) reader.getWidth(i) * reader.getHeight(i) > maxPixels) {
+                    throw new IOException("Animation is larger than " + maxPixels + " pixels");
+                }
+                BufferedImage raster = reader.read(i);
+                // Only the frame's own rectangle changes, so that is all restoreToPrevious needs to put back.
+                int backupX = Math.max(0, left);
+                int backupY = Math.max(0, top);
+                int backupW = Math.min(width, left + raster.getWidth()) - backupX;
+                int backupH = Math.min(height, top + raster.getHeight()) - backupY;
+                int[] previous = "restoreToPrevious".equals(disposal) && backupW > 0 && backupH > 0
+                        ? canvas.getRGB(backupX, backupY, backupW, backupH, null, 0, backupW)
+                        : null;
+                Graphics2D g = canvas.createGraphics();
+                g.drawImage(raster, left, top, null);
+                g.dispose();
+
+                // Frame i is kept when it is the first source frame at or after the next evenly spaced slot.
+                boolean keep = nextKept < kept && (long) i * kept >= (long) nextKept * count;
+                if (keep) {
+                    frames.add(snapshot(canvas, outW, outH));
+                    delays.add(delay > 10 ? delay : DEFAULT_FRAME_DELAY_MS);
+                    nextKept++;
+                } else if (!delays.isEmpty()) {
+                    int last = delays.size() - 1;
+                    delays.set(last, delays.get(last) + (delay > 10 ? delay : DEFAULT_FRAME_DELAY_MS));
+                }
+
+                if (previous != null) {
+                    canvas.setRGB(backupX, backupY, backupW, backupH, previous, 0, backupW);
+                } else if ("restoreToBackgroundColor".equals(disposal)) {
+                    Graphics2D clear = canvas.createGraphics();
+                    clear.setComposite(AlphaComposite.Clear);
+                    clear.fillRect(left, top, raster.getWidth(), raster.getHeight());
+                    clear.dispose();
+                }
+            }
+            return new Animation(frames, delays, width, height, subsample);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * The reader's own int-packed destination for this image, ARGB when it may carry alpha and RGB when it cannot,
+     * or null if the reader only offers byte or indexed layouts.
+     */
+    private static ImageTypeSpecifier packedType(ImageReader reader) throws IOException {
+        ImageTypeSpecifier raw = reader.getRawImageType(0);
+        boolean alpha = raw == null || raw.getColorModel().hasAlpha();
+        Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+        while (types.hasNext()) {
+            ImageTypeSpecifier type = types.next();
+            int bufferedType = type.getBufferedImageType();
+            if (alpha ? bufferedType == BufferedImage.TYPE_INT_ARGB || bufferedType == BufferedImage.TYPE_INT_ARGB_PRE
+                    : bufferedType == BufferedImage.TYPE_INT_RGB) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Redraws byte, indexed and gray rasters as TYPE_INT_ARGB, or TYPE_INT_RGB when opaque, so everything after the
+     * decode works on int pixels.
+     */
+    private static BufferedImage toPacked(BufferedImage image) {
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_ARGB_PRE
+                || type == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage packed = new BufferedImage(image.getWidth(), image.getHeight(),
+                image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = packed.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return packed;
+    }
+
+    private static BufferedImage snapshot(BufferedImage canvas, int width, int height) {
+        BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = copy.createGraphics();
+        if (width != canvas.getWidth() || height != canvas.getHeight()) {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        g.drawImage(canvas, 0, 0, width, height, null);
+        g.dispose();
+        return copy;
+    }
+
+    private static Node metadataRoot(IIOMetadata metadata, String format) {
+        if (metadata == null) {
+            return null;
+        }
+        try {
+            return metadata.getAsTree(format);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Node child(Node parent, String name) {
+        if (parent == null) {
+            return null;
+        }
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (name.equals(node.getNodeName())) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static String attribute(Node node, String name) {
+        Node value = node.getAttributes() != null ? node.getAttributes().getNamedItem(name) : null;
+        return value != null ? value.getNodeValue() : null;
+    }
+
+    private static int intAttribute(Node node, String name, int fallback) {
+        String value = attribute(node, name);
+        try {
+            return value != null ? Integer.parseInt(value) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * The subsampling factor {@link #decode(byte[], int, int)} uses for a {@code width x height} source: as coarse
+     * as keeps both axes at least twice the target, then coarser still if the pixel cap requires it.
+     */
+    public int subsampleFor(int width, int height, int targetW, int targetH) {
+        int subsample = 1;
+        if (targetW > 0 && targetH > 0) {
+            subsample = Math.max(1, Math.min(width / (targetW * TARGET_OVERSAMPLE),
+                    height / (targetH * TARGET_OVERSAMPLE)));
+        }
+        long cap = maxPixels;
+        while (pixelsAt(width, height, subsample) > cap && subsample < Math.max(width, height)) {
+            subsample++;
+        }
+        return subsample;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(1L, maxBytes);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxPixels(long maxPixels) {
+        this.maxPixels = Math.max(1L, maxPixels);
+    }
+
+    public long getMaxPixels() {
+        return maxPixels;
+    }
+
+    private static long pixelsAt(int width, int height, int subsample) {
+        long w = (width + subsample - 1) / subsample;
+        long h = (height + subsample - 1) / subsample;
+        return w * h;
+    }
+
+    public static class Decoded {
+        public final BufferedImage image;
+        public final int sourceWidth;
+        public final int sourceHeight;
+        public final int subsample;
+
+        Decoded(BufferedImage image, int sourceWidth, int sourceHeight, int subsample) {
+            this.image = image;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.subsample = subsample;
+        }
+    }
+
+    /**
+     * Composited frames of an animation, all {@code sourceWidth / subsample} wide, with how long each is shown.
+     */
+    public static class Animation {
+        public final List<BufferedImage> frames;
+        public final List<Integer> delaysMillis;
+        public final int sourceWidth;
+        public final int sourceHeight;
+        public final int subsample;
+
+        Animation(List<BufferedImage> frames, List<Integer> delaysMillis, int sourceWidth, int sourceHeight,
+                int subsample) {
+            this.frames = frames;
+            this.delaysMillis = delaysMillis;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.subsample = subsample;
+        }
+    }
+
+    /**
+     * Seekable image stream over a mapped file.
+     */
+    private static final class MappedImageInputStream extends ImageInputStreamImpl {
+        private final ByteBuffer buffer;
+
+        MappedImageInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkClosed();
+            if (streamPos >= buffer.limit()) {
+                return -1;
+            }
+            bitOffset = 0;
+            return buffer.get((int) streamPos++) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkClosed();
+            if (len == 0) {
+                return 0;
+            }
+            long remaining = buffer.limit() - streamPos;
+            if (remaining <= 0L) {
+                return -1;
+            }
+            int count = (int) Math.min(len, remaining);
+            buffer.get((int) streamPos, b, off, count);
+            streamPos += count;
+            bitOffset = 0;
+            return count;
+        }
+
+        @Override
+        public long length() {
+            return buffer.limit();
+        }
+    }
+}
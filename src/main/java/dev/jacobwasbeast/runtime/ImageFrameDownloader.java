@@ -0,0 +1,413 @@
+package dev.jacobwasbeast.runtime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches source images over a shared {@link HttpClient}, so connections to a host are reused across frames. Every
+ * fetch holds one global permit and one permit for its host, which caps both total and per-host concurrency. Work
+ * submitted to {@link #executor()} runs on virtual threads, so callers waiting on slow hosts don't tie up platform
+ * threads.
+ * <p>
+ * Each host also has a request rate cap and a circuit breaker. Failures that point at the host (connect errors,
+ * timeouts, 429 and 5xx) are retried with jittered exponential backoff; once a host has failed often enough in a
+ * row, fetches to it fail immediately until the cooldown passes and a single trial request gets through.
+ */
+public class ImageFrameDownloader {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+    // REQUEST_TIMEOUT ends once headers arrive; the body gets its own overall deadline.
+    private static final Duration BODY_TIMEOUT = Duration.ofSeconds(60);
+    private static final String USER_AGENT = "ImageFrames/1.0";
+    private static final long MAX_BACKOFF_MILLIS = 10_000L;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("ImageFrames-io-", 0).factory());
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build();
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private volatile Semaphore globalPermits;
+    private volatile int maxPerHost;
+    private volatile long maxBytes = ImageFrameDecoder.DEFAULT_MAX_BYTES;
+    private volatile int maxRetries = 2;
+    private volatile long backoffMillis = 500L;
+    private volatile int failureThreshold = 5;
+    private volatile long cooldownMillis = 60_000L;
+    private volatile long minRequestIntervalNanos = 250_000_000L;
+
+    public ImageFrameDownloader(int maxConcurrent, int maxPerHost) {
+        setLimits(maxConcurrent, maxPerHost);
+    }
+
+    /**
+     * Replaces the concurrency limits. Fetches already holding permits finish under the old limits.
+     */
+    public void setLimits(int maxConcurrent, int maxPerHost) {
+        this.globalPermits = new Semaphore(Math.max(1, maxConcurrent), true);
+        this.maxPerHost = Math.max(1, maxPerHost);
+        hosts.clear();
+    }
+
+    /**
+     * Retries after a host failure up to {@code maxRetries} times, waiting about {@code backoffMillis}, then twice
+     * that, and so on (capped at ten seconds), each wait jittered so callers that failed together don't retry
+     * together.
+     */
+    public void setRetryPolicy(int maxRetries, long backoffMillis) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoffMillis = Math.max(0L, backoffMillis);
+    }
+
+    /**
+     * Opens a host's circuit after {@code failureThreshold} consecutive host failures, failing fetches to it fast for
+     * {@code cooldownMillis}.
+     */
+    public void setCircuitBreaker(int failureThreshold, long cooldownMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.cooldownMillis = Math.max(0L, cooldownMillis);
+    }
+
+    /**
+     * Caps requests started against any one host; 0 or less removes the cap.
+     */
+    public void setHostRateLimit(double requestsPerSecond) {
+        this.minRequestIntervalNanos = requestsPerSecond > 0.0 ? (long) (1_000_000_000L / requestsPerSecond) : 0L;
+    }
+
+    /**
+     * Hosts whose circuit is currently open, with the milliseconds left until a trial request is let through.
+     */
+    public Map<String, Long> getOpenHosts() {
+        Map<String, Long> open = new java.util.TreeMap<>();
+        long now = System.nanoTime();
+        for (Map.Entry<String, HostState> entry : hosts.entrySet()) {
+            long remaining = entry.getValue().openRemainingNanos(now);
+            if (remaining > 0L) {
+                open.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(remaining));
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Bodies larger than this are abandoned mid-transfer.
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(1L, maxBytes);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Virtual-thread executor for work that downloads (and then renders) an image.
+     */
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Streams {@code url} into a temp file in {@code dir}, hashing it on the way. The returned source owns that file;
+     * nothing is left behind if the download fails part way.
+     */
+    public ImageFrameImageCache.SourceBytes download(String url, Path dir) throws IOException {
+        return download(url, dir, null);
+    }
+
+    /**
+     * Like {@link #download(String, Path)}, but when {@code previous} is given the request is conditional on it, and
+     * a {@code 304} comes back as {@link ImageFrameImageCache.SourceBytes#notModified(String, String)} without a body.
+     */
+    public ImageFrameImageCache.SourceBytes download(String url, Path dir, ImageFrameImageCache.Validators previous)
+            throws IOException {
+        if (url == null || url.isEmpty()) {
+            throw new IOException("URL is empty");
+        }
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + url, e);
+        }
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "";
+        if (!"http".equals(scheme) && !"https".equals(scheme) || uri.getHost() == null) {
+            throw new IOException("Unsupported URL: " + url);
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("User-Agent", USER_AGENT)
+                .GET();
+        boolean conditional = false;
+        if (previous != null && previous.etag != null) {
+            builder.header("If-None-Match", previous.etag);
+            conditional = true;
+        }
+        if (previous != null && previous.lastModified != null) {
+            builder.header("If-Modified-Since", previous.lastModified);
+            conditional = true;
+        }
+        HttpRequest request = builder.build();
+        HostState host = hosts.computeIfAbsent(uri.getHost().toLowerCase(Locale.ROOT),
+                key -> new HostState(maxPerHost));
+        try {
+            for (int attempt = 0; ; attempt++) {
+                host.enterCircuit(uri.getHost());
+                try {
+                    ImageFrameImageCache.SourceBytes result = fetch(request, host, dir, conditional);
+                    host.recordSuccess();
+                    return result;
+                } catch (HostFailureException e) {
+                    if (!host.recordFailure(failureThreshold, cooldownMillis) || attempt >= maxRetries) {
+                        throw e;
+                    }
+                } catch (IOException e) {
+                    // Any answer that isn't a host failure, including a 404, shows the host is up.
+                    host.recordSuccess();
+                    throw e;
+                } catch (InterruptedException e) {
+                    host.abandonTrial();
+                    throw e;
+                }
+                TimeUnit.MILLISECONDS.sleep(backoffFor(attempt));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + url);
+        }
+    }
+
+    private ImageFrameImageCache.SourceBytes fetch(HttpRequest request, HostState host, Path dir,
+            boolean conditional) throws IOException, InterruptedException {
+        long wait = host.reserveRequestSlot(minRequestIntervalNanos);
+        if (wait > 0L) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        Semaphore global = globalPermits;
+        global.acquire();
+        try {
+            host.permits.acquire();
+            try {
+                HttpResponse<InputStream> response;
+                try {
+                    response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                } catch (IOException e) {
+                    throw new HostFailureException(e.toString(), e);
+                }
+                try (InputStream body = response.body()) {
+                    int status = response.statusCode();
+                    if (status == 429 || status >= 500) {
+                        throw new HostFailureException("HTTP " + status, null);
+                    }
+                    if (status == 304 && conditional) {
+                        return ImageFrameImageCache.SourceBytes.notModified(
+                                response.headers().firstValue("ETag").orElse(null),
+                                response.headers().firstValue("Last-Modified").orElse(null));
+                    }
+                    if (status >= 300) {
+                        throw new IOException("HTTP " + status);
+                    }
+                    long limit = maxBytes;
+                    long declared = response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+                    if (declared > limit) {
+                        throw new IOException("Image is larger than " + limit + " bytes");
+                    }
+                    return streamToFile(body, dir, limit, response.headers());
+                }
+            } finally {
+                host.permits.release();
+            }
+        } finally {
+            global.release();
+        }
+    }
+
+    private static ImageFrameImageCache.SourceBytes streamToFile(InputStream body, Path dir, long limit,
+            HttpHeaders headers) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        Path tmp = Files.createTempFile(dir, "download-", TMP_SUFFIX);
+        boolean complete = false;
+        long deadline = System.nanoTime() + BODY_TIMEOUT.toNanos();
+        // A read blocked on a host that stopped sending never reaches the deadline check, so close it from outside.
+        CompletableFuture<Void> watchdog = CompletableFuture.runAsync(() -> closeQuietly(body),
+                CompletableFuture.delayedExecutor(BODY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+        try (ReadableByteChannel in = Channels.newChannel(body);
+                FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_BYTES);
+            long total = 0L;
+            while (true) {
+                int read;
+                try {
+                    read = in.read(buffer);
+                } catch (IOException e) {
+                    if (System.nanoTime() - deadline >= 0L) {
+                        throw new HostFailureException("Body not received within " + BODY_TIMEOUT.toSeconds() + " s",
+                                e);
+                    }
+                    throw new HostFailureException(e.toString(), e);
+                }
+                if (read < 0) {
+                    break;
+                }
+                if (System.nanoTime() - deadline >= 0L) {
+                    throw new HostFailureException("Body not received within " + BODY_TIMEOUT.toSeconds() + " s",
+                            null);
+                }
+                total += read;
+                if (total > limit) {
+                    throw new IOException("Image is larger than " + limit + " bytes");
+                }
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+            complete = true;
+            // Keep the bytes exactly as served; the cache decodes them only when pixels are needed.
+            return ImageFrameImageCache.SourceBytes.ofFile(tmp, headers.firstValue("Content-Type").orElse(null), total,
+                    HexFormat.of().formatHex(digest.digest()), headers.firstValue("ETag").orElse(null),
+                    headers.firstValue("Last-Modified").orElse(null));
+        } finally {
+            watchdog.cancel(false);
+            if (!complete) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private long backoffFor(int attempt) {
+        long base = Math.min(MAX_BACKOFF_MILLIS, backoffMillis << Math.min(attempt, 16));
+        // Equal jitter: half the delay is fixed, the other half random.
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A failure that says something about the host itself, as opposed to the URL (404) or the image (too large).
+     */
+    private static class HostFailureException extends IOException {
+        HostFailureException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static class HostState {
+        final Semaphore permits;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean open;
+        private boolean trialInFlight;
+        private long nextRequestAt;
+
+        HostState(int maxPerHost) {
+            this.permits = new Semaphore(maxPerHost, true);
+        }
+
+        /**
+         * Throws if the circuit is open. Once the cooldown has passed, lets exactly one trial request through.
+         */
+        synchronized void enterCircuit(String host) throws IOException {
+            if (!open) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (now - openUntil < 0L || trialInFlight) {
+                throw new IOException("Host " + host + " is unavailable after " + consecutiveFailures
+                        + " failures; not retrying yet");
+            }
+            trialInFlight = true;
+        }
+
+        synchronized void abandonTrial() {
+            trialInFlight = false;
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            open = false;
+            trialInFlight = false;
+        }
+
+        /**
+         * Returns false if this failure opened (or re-opened) the circuit, so the caller should stop retrying.
+         */
+        synchronized boolean recordFailure(int threshold, long cooldownMillis) {
+            consecutiveFailures++;
+            trialInFlight = false;
+            if (open || consecutiveFailures >= threshold) {
+                open = true;
+                openUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Time left until a trial request may go through; 0 once the cooldown has passed, even before the trial.
+         */
+        synchronized long openRemainingNanos(long now) {
+            return open && openUntil - now > 0L ? openUntil - now : 0L;
+        }
+
+        /**
+         * Books the next request start for this host and returns how long the caller has to wait for it.
+         */
+        synchronized long reserveRequestSlot(long minIntervalNanos) {
+            if (minIntervalNanos <= 0L) {
+                return 0L;
+            }
+            long now = System.nanoTime();
+            long at = nextRequestAt - now > 0L ? nextRequestAt : now;
+            nextRequestAt = at + minIntervalNanos;
+            return at - now;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package dev.jacobwasbeast.runtime;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@code file:} URLs, read from a directory on the server and never cached. The path is always taken relative to
+ * that directory ({@code file:art/logo.png} and {@code file:///art/logo.png} name the same file), and anything that
+ * resolves outside it, symlinks included, is refused.
+ */
+final class ImageFrameFileSource implements ImageFrameSource {
+    private final ImageFrameDecoder decoder;
+    private final List<Path> protectedDirs = new CopyOnWriteArrayList<>();
+    private volatile Path root;
+
+    ImageFrameFileSource(ImageFrameDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    /**
+     * Keeps {@code dir} out of reach: a root that is, contains or lies inside it is refused, and so is any file that
+     * resolves into it.
+     */
+    void protect(Path dir) {
+        protectedDirs.add(dir);
+    }
+
+    /**
+     * Directory file URLs are read from; null turns the scheme off. A root overlapping a protected directory turns
+     * the scheme off and throws, since it would serve the plugin's own cache files by path.
+     */
+    void setRoot(Path root) throws IOException {
+        this.root = null;
+        if (root == null) {
+            return;
+        }
+        Path real = realPath(root);
+        for (Path dir : protectedDirs) {
+            Path other = realPath(dir);
+            if (real.startsWith(other) || other.startsWith(real)) {
+                throw new IOException("File source directory " + root + " overlaps " + dir);
+            }
+        }
+        this.root = real;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return CachePolicy.NONE;
+    }
+
+    @Override
+    public Result load(String url, ImageFrameImageCache.Validators previous) throws IOException {
+        Path base = root;
+        if (base == null) {
+            throw new IOException("file: images are disabled");
+        }
+        String path;
+        try {
+            URI uri = URI.create(url);
+            path = uri.getPath() != null ? uri.getPath() : uri.getSchemeSpecificPart();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + url, e);
+        }
+        while (path != null && path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (path == null || path.isEmpty()) {
+            throw new IOException("No file in URL: " + url);
+        }
+        Path file = base.resolve(path).normalize();
+        if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+            throw new IOException("File not found: " + path);
+        }
+        Path real = file.toRealPath();
+        if (!real.startsWith(base.toRealPath()) || isProtected(real)) {
+            throw new IOException("File not found: " + path);
+        }
+        long size = Files.size(file);
+        if (size > decoder.getMaxBytes()) {
+            throw new IOException("Image is larger than " + decoder.getMaxBytes() + " bytes");
+        }
+        return Result.ofBytes(Files.readAllBytes(file), Files.probeContentType(file));
+    }
+
+    private boolean isProtected(Path real) {
+        for (Path dir : protectedDirs) {
+            if (real.startsWith(realPath(dir))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@code path} with every symlink resolved, as far as it exists; the missing tail is appended as written.
+     */
+    private static Path realPath(Path path) {
+        Path absolute = path.toAbsolutePath().normalize();
+        Path existing = absolute;
+        while (existing != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        if (existing == null) {
+            return absolute;
+        }
+        try {
+            return existing.toRealPath().resolve(existing.relativize(absolute));
+        } catch (IOException e) {
+            return absolute;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package dev.jacobwasbeast.runtime;
+
+import java.io.IOException;
+
+/**
+ * {@code http} and {@code https} URLs, fetched by the shared downloader and kept in the disk cache.
+ */
+final class ImageFrameHttpSource implements ImageFrameSource {
+    private final ImageFrameDownloader downloader;
+    private final ImageFrameImageCache imageCache;
+
+    ImageFrameHttpSource(ImageFrameDownloader downloader, ImageFrameImageCache imageCache) {
+        this.downloader = downloader;
+        this.imageCache = imageCache;
+    }
+
+    @Override
+    public CachePolicy getCachePolicy() {
+        return CachePolicy.DISK;
+    }
+
+    @Override
+    public Result load(String url, ImageFrameImageCache.Validators previous) throws IOException {
+        return Result.of(downloader.download(url, imageCache.getDownloadDir(), previous));
+    }
+}
@@ -2,96 +2,1223 @@ package dev.jacobwasbeast.runtime;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
+import dev.jacobwasbeast.store.ImageFrameStore;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.function.Supplier;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
-public class ImageFrameImageCache {
+/**
+ * Source image cache. Image bytes are stored once per distinct content under {@code images/<sha256>.<ext>}, and
+ * every URL is an alias pointing at the content hash it last resolved to. The decoded memory tier is keyed by
+ * content hash too, so two URLs serving the same bytes share one decode.
+ * <p>
+ * URLs used by stored frames are retained through {@link ImageFrameStore.UrlReferenceListener}; the blobs they resolve
+ * to are pinned, which keeps them out of disk eviction and puts unreferenced images first in line for memory
+ * eviction.
+ * <p>
+ * An alias also remembers the validators ({@code ETag}, {@code Last-Modified}) its bytes were served with. Once it is
+ * older than the revalidation interval, the next load asks the origin with a conditional request; a {@code 304}
+ * keeps the cached blob, and changed bytes replace the alias like a fresh download.
+ */
+public class ImageFrameImageCache implements ImageFrameStore.UrlReferenceListener {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final Type INDEX_TYPE = new TypeToken<Map<String, CacheEntry>>() {}.getType();
+    private static final Gson JOURNAL_GSON = new Gson();
+    private static final Type LEGACY_INDEX_TYPE = new TypeToken<Map<String, LegacyEntry>>() {}.getType();
+    private static final long DEFAULT_MEMORY_CACHE_BYTES = 256L * 1024L * 1024L;
+    private static final long DEFAULT_DISK_CACHE_BYTES = 1024L * 1024L * 1024L;
+    private static final int LOCK_STRIPES = 64;
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final long ORPHAN_GRACE_MILLIS = 60L * 60L * 1000L;
+    private static final int JOURNAL_COMPACT_RECORDS = 1024;
+    private static final long DEFAULT_REVALIDATE_AFTER_MILLIS = 24L * 60L * 60L * 1000L;
 
     private final Path cacheDir;
     private final Path indexPath;
-    private final Map<String, CacheEntry> index = new HashMap<>();
-    private final Map<String, BufferedImage> memoryCache = new HashMap<>();
+    private final Path journalPath;
+    private final Map<String, UrlEntry> urls = new ConcurrentHashMap<>();
+    private final Map<String, BlobEntry> blobs = new ConcurrentHashMap<>();
+    // URLs aliasing each hash, as immutable sets swapped on change, so eviction finds them without a scan.
+    private final Map<String, Set<String>> urlsByHash = new ConcurrentHashMap<>();
+    private volatile ImageFrameMemoryTier memoryTier = new ImageFrameMemoryCache(DEFAULT_MEMORY_CACHE_BYTES);
+    private final Map<String, Integer> urlRefs = new HashMap<>();
+    private final Map<String, String> pinnedHashByUrl = new HashMap<>();
+    private final Map<String, Integer> hashPins = new ConcurrentHashMap<>();
+    private final Object pinLock = new Object();
+    private final Map<String, Integer> residentSubsample = new ConcurrentHashMap<>();
+    private final ImageFrameDecoder decoder = new ImageFrameDecoder();
+    private final Map<String, CompletableFuture<ImageFrameDecoder.Decoded>> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock[] urlLocks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock[] blobLocks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private final AtomicBoolean indexDirty = new AtomicBoolean(false);
+    private final AtomicLong diskEvictions = new AtomicLong();
+    private final AtomicLong dedupHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong diskMisses = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong decodes = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final AtomicLong mipDecodes = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final Set<String> mipsBuilding = ConcurrentHashMap.newKeySet();
+    private volatile Executor mipExecutor = Runnable::run;
+    private volatile long diskMaxBytes = DEFAULT_DISK_CACHE_BYTES;
+    private volatile long revalidateAfterMillis = DEFAULT_REVALIDATE_AFTER_MILLIS;
+    private BufferedWriter journalWriter;
+    private int journalRecords;
 
     public ImageFrameImageCache(Path baseDir) {
         this.cacheDir = baseDir.resolve("images");
         this.indexPath = baseDir.resolve("image_cache.json");
+        this.journalPath = baseDir.resolve("image_cache.journal");
+        for (int i = 0; i < urlLocks.length; i++) {
+            urlLocks[i] = new ReentrantLock();
+            blobLocks[i] = new ReentrantLock();
+        }
+        memoryTier.setPinFilter(this::isPinned);
         loadIndex();
     }
 
-    public synchronized BufferedImage loadOrDownload(String url, Supplier<BufferedImage> downloader) throws IOException {
+    /**
+     * Borrows the full-resolution source for {@code url} (still subject to the decoder's pixel cap).
+     */
+    public ImageFrameSourceHandle acquire(String url, SourceFetcher fetcher) throws IOException {
+        return acquire(url, fetcher, 0, 0);
+    }
+
+    /**
+     * Borrows the decoded source for {@code url}, downloading and decoding it on a miss. The image may be subsampled
+     * for a render of {@code targetW x targetH}; a resident copy decoded for a smaller target is decoded again at the
+     * finer resolution. The handle must be closed once the render is done with the image.
+     */
+    public ImageFrameSourceHandle acquire(String url, SourceFetcher fetcher, int targetW, int targetH)
+            throws IOException {
+        if (url == null || url.isEmpty()) {
+            throw new IOException("URL is empty");
+        }
+        boolean counted = false;
+        while (true) {
+            // Memory hits never take a lock, so they can't wait behind another URL's download.
+            ImageFrameSourceHandle cached = acquireFromMemory(url, !counted, targetW, targetH);
+            counted = true;
+            if (cached != null) {
+                return cached;
+            }
+            CompletableFuture<ImageFrameDecoder.Decoded> created = new CompletableFuture<>();
+            CompletableFuture<ImageFrameDecoder.Decoded> existing = inFlight.putIfAbsent(url, created);
+            ImageFrameDecoder.Decoded decoded;
+            if (existing != null) {
+                decoded = await(existing);
+            } else {
+                runLoad(url, fetcher, targetW, targetH, created);
+                decoded = await(created);
+            }
+            if (decoded != null && decoded.subsample <= requiredSubsample(getContentHash(url), targetW, targetH)) {
+                return ImageFrameSourceHandle.unmanaged(decoded.image);
+            }
+            // Either the load found the image already resident (borrow it from the tier, or load again if it was
+            // evicted in between), or we joined a load made for a smaller target.
+        }
+    }
+
+    /**
+     * Brings {@code url} into the cache, running a miss on {@code executor}. Callers asking for a URL that is already
+     * being loaded share the same load instead of starting a second fetch and decode.
+     */
+    public CompletableFuture<Void> loadOrDownloadAsync(String url, SourceFetcher fetcher,
+            Executor executor) {
+        if (url == null || url.isEmpty()) {
+            return CompletableFuture.failedFuture(new IOException("URL is empty"));
+        }
+        String hash = getContentHash(url);
+        if (hash != null && memoryTier.contains(hash) && !needsRevalidation(url)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<ImageFrameDecoder.Decoded> created = new CompletableFuture<>();
+        CompletableFuture<ImageFrameDecoder.Decoded> existing = inFlight.putIfAbsent(url, created);
+        if (existing != null) {
+            return existing.thenApply(img -> null);
+        }
+        try {
+            executor.execute(() -> runLoad(url, fetcher, 0, 0, created));
+        } catch (RuntimeException e) {
+            inFlight.remove(url, created);
+            created.completeExceptionally(e);
+        }
+        return created.thenApply(img -> null);
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the content hash {@code url} currently resolves to, or null if it has never been downloaded.
+     */
+    public String getContentHash(String url) {
+        UrlEntry alias = url != null ? urls.get(url) : null;
+        return alias != null ? alias.contentHash : null;
+    }
+
+    /**
+     * Whether the copy cached for {@code url} is old enough that the next load should check it with the origin.
+     */
+    public boolean needsRevalidation(String url) {
+        long ttl = revalidateAfterMillis;
+        UrlEntry alias = url != null && ttl > 0L ? urls.get(url) : null;
+        return alias != null && System.currentTimeMillis() - alias.validatedAt >= ttl;
+    }
+
+    /**
+     * Full-resolution size of the source cached for {@code url}, or null until it has been decoded once.
+     */
+    public Dimension getSourceSize(String url) {
+        String hash = getContentHash(url);
+        BlobEntry blob = hash != null ? blobs.get(hash) : null;
+        if (blob == null || blob.width <= 0 || blob.height <= 0) {
+            return null;
+        }
+        return new Dimension(blob.width, blob.height);
+    }
+
+    /**
+     * The cached original file for {@code url}, or null if it is not on disk. Only a pinned source is guaranteed to
+     * outlive the next sweep.
+     */
+    public Path getSourceFile(String url) {
+        String hash = getContentHash(url);
+        BlobEntry blob = hash != null ? blobs.get(hash) : null;
+        if (blob == null || blob.fileName == null) {
+            return null;
+        }
+        Path path = cacheDir.resolve(blob.fileName);
+        return Files.exists(path) ? path : null;
+    }
+
+    public void store(String url, SourceBytes source) throws IOException {
+        ReentrantLock lock = lockFor(url);
+        lock.lock();
+        try {
+            storeLocked(url, source, source.hash());
+        } finally {
+            lock.unlock();
+            source.discard();
+        }
+    }
+
+    /**
+     * Asks the origin about {@code url} right away, whatever its age, and returns the content hash it resolves to
+     * afterwards. Changed bytes are stored without being decoded, so a caller can tell from the hash alone whether
+     * anything needs rendering; bytes no image reader recognizes are rejected and the cached copy stays.
+     */
+    public String revalidateNow(String url, SourceFetcher fetcher) throws IOException {
         if (url == null || url.isEmpty()) {
             throw new IOException("URL is empty");
         }
-        BufferedImage cached = memoryCache.get(url);
+        ReentrantLock lock = lockFor(url);
+        lock.lock();
+        SourceBytes fresh = null;
+        try {
+            fresh = getContentHash(url) != null ? revalidate(url, fetcher) : fetcher.fetch(null);
+            if (fresh == null) {
+                return getContentHash(url);
+            }
+            if (fresh.notModified || fresh.size <= 0L) {
+                throw new IOException("Failed to download image");
+            }
+            if (readerSuffix(fresh) == null) {
+                throw new IOException("Unsupported image");
+            }
+            downloads.incrementAndGet();
+            downloadedBytes.addAndGet(fresh.size);
+            String hash = fresh.hash();
+            storeLocked(url, fresh, hash);
+            return hash;
+        } finally {
+            if (fresh != null) {
+                fresh.discard();
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes {@code result} with the freshly decoded image, or with null when a copy good enough for the target
+     * was already resident in the memory tier and should be borrowed from there.
+     */
+    private void runLoad(String url, SourceFetcher fetcher, int targetW, int targetH,
+            CompletableFuture<ImageFrameDecoder.Decoded> result) {
+        ReentrantLock lock = lockFor(url);
+        lock.lock();
+        SourceBytes downloaded = null;
+        try {
+            ImageFrameDecoder.Decoded decoded = null;
+            boolean resident = false;
+            String knownHash = getContentHash(url);
+            if (knownHash != null && needsRevalidation(url)) {
+                downloaded = revalidate(url, fetcher);
+                if (downloaded != null) {
+                    knownHash = null;
+                }
+            }
+            if (knownHash != null) {
+                resident = isResident(knownHash, targetW, targetH);
+                if (!resident) {
+                    decoded = loadBlobFromDisk(knownHash, targetW, targetH);
+                    if (decoded != null) {
+                        diskHits.incrementAndGet();
+                    }
+                }
+            }
+            if (!resident && decoded == null) {
+                if (downloaded == null) {
+                    diskMisses.incrementAndGet();
+                    downloaded = fetcher.fetch(null);
+                }
+                if (downloaded == null || downloaded.notModified || downloaded.size <= 0L) {
+                    throw new IOException("Failed to download image");
+                }
+                downloads.incrementAndGet();
+                downloadedBytes.addAndGet(downloaded.size);
+                String hash = downloaded.hash();
+                if (isResident(hash, targetW, targetH)) {
+                    // Another URL already brought these exact bytes in; only the download was spent.
+                    dedupHits.incrementAndGet();
+                    resident = true;
+                } else {
+                    // The caller is rendering, so decode now; this also keeps undecodable bytes out of the cache.
+                    decoded = timedDecode(downloaded, targetW, targetH);
+                    if (decoded == null) {
+                        throw new IOException("Unsupported image");
+                    }
+                    putDecoded(hash, decoded, encodedFor(downloaded), fullDecodeSubsample(decoded));
+                }
+                storeLocked(url, downloaded, hash);
+                if (decoded != null) {
+                    recordDimensions(blobs.get(hash), decoded);
+                    scheduleMips(hash, decoded);
+                }
+            }
+            result.complete(decoded);
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        } finally {
+            if (downloaded != null) {
+                downloaded.discard();
+            }
+            lock.unlock();
+            inFlight.remove(url, result);
+        }
+    }
+
+    /**
+     * Asks the origin whether the copy cached for {@code url} is still current. Returns the new bytes if it changed,
+     * or null to keep serving the cached copy: either the origin answered {@code 304}, or it could not be reached, in
+     * which case the copy is trusted for another interval rather than failing the render.
+     */
+    private SourceBytes revalidate(String url, SourceFetcher fetcher) throws IOException {
+        UrlEntry alias = urls.get(url);
+        revalidations.incrementAndGet();
+        SourceBytes fresh;
+        try {
+            fresh = fetcher.fetch(new Validators(alias.etag, alias.lastModified));
+        } catch (IOException e) {
+            fresh = null;
+        }
+        if (fresh != null && !fresh.notModified) {
+            return fresh;
+        }
+        UrlEntry refreshed = new UrlEntry();
+        refreshed.contentHash = alias.contentHash;
+        refreshed.etag = fresh != null && fresh.etag != null ? fresh.etag : alias.etag;
+        refreshed.lastModified = fresh != null && fresh.lastModified != null ? fresh.lastModified : alias.lastModified;
+        refreshed.validatedAt = System.currentTimeMillis();
+        if (fresh != null) {
+            notModified.incrementAndGet();
+        }
+        putAlias(url, refreshed);
+        appendJournal(JournalRecord.putUrl(url, refreshed));
+        return null;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException unchecked) {
+                cause = unchecked.getCause();
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Failed to load image", cause);
+        }
+    }
+
+    private ImageFrameSourceHandle acquireFromMemory(String url, boolean countStats, int targetW, int targetH) {
+        String hash = getContentHash(url);
+        if (hash == null || !isResident(hash, targetW, targetH) || needsRevalidation(url)) {
+            if (countStats) {
+                memoryTier.recordMiss();
+            }
+            return null;
+        }
+        ImageFrameSourceHandle cached = countStats ? memoryTier.acquire(hash) : memoryTier.acquireQuiet(hash);
         if (cached != null) {
-            return cached;
+            touch(blobs.get(hash));
+        }
+        return cached;
+    }
+
+    /**
+     * Whether the memory tier holds {@code hash} at a resolution fine enough for a {@code targetW x targetH} render.
+     */
+    private boolean isResident(String hash, int targetW, int targetH) {
+        if (!memoryTier.contains(hash)) {
+            return false;
+        }
+        return residentSubsample.getOrDefault(hash, 1) <= requiredSubsample(hash, targetW, targetH);
+    }
+
+    private int requiredSubsample(String hash, int targetW, int targetH) {
+        BlobEntry blob = hash != null ? blobs.get(hash) : null;
+        if (blob == null || blob.width <= 0 || blob.height <= 0) {
+            return 1;
+        }
+        return decoder.subsampleFor(blob.width, blob.height, targetW, targetH);
+    }
+
+    /**
+     * Puts {@code decoded} into the memory tier. {@code encodedSubsample} is the resolution a full decode of
+     * {@code encoded} gives back, which is what a tier that keeps only the encoded bytes will serve.
+     */
+    private void putDecoded(String hash, ImageFrameDecoder.Decoded decoded, byte[] encoded, int encodedSubsample) {
+        memoryTier.put(hash, decoded.image, encoded);
+        residentSubsample.put(hash, memoryTier.keepsDecodedPixels() ? decoded.subsample : encodedSubsample);
+    }
+
+    private int fullDecodeSubsample(ImageFrameDecoder.Decoded decoded) {
+        return decoder.subsampleFor(decoded.sourceWidth, decoded.sourceHeight, 0, 0);
+    }
+
+    private void recordDimensions(BlobEntry blob, ImageFrameDecoder.Decoded decoded) {
+        if (blob != null && (blob.width != decoded.sourceWidth || blob.height != decoded.sourceHeight)) {
+            blob.width = decoded.sourceWidth;
+            blob.height = decoded.sourceHeight;
+            indexDirty.set(true);
+        }
+    }
+
+    private ImageFrameDecoder.Decoded loadBlobFromDisk(String hash, int targetW, int targetH) {
+        BlobEntry blob = blobs.get(hash);
+        if (blob == null || blob.fileName == null) {
+            return null;
+        }
+        ImageFrameDecoder.Decoded mip = loadMip(hash, blob, targetW, targetH);
+        if (mip != null) {
+            return mip;
+        }
+        Path path = cacheDir.resolve(blob.fileName);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ImageFrameDecoder.Decoded decoded;
+        byte[] encoded;
+        try {
+            decoded = timedDecode(path, targetW, targetH);
+            encoded = decoded != null ? encodedFor(path) : null;
+        } catch (IOException e) {
+            // Unreadable; fall back to downloading it again.
+            return null;
+        }
+        if (decoded == null) {
+            return null;
+        }
+        recordDimensions(blob, decoded);
+        touch(blob);
+        putDecoded(hash, decoded, encoded, fullDecodeSubsample(decoded));
+        scheduleMips(hash, decoded);
+        return decoded;
+    }
+
+    /**
+     * Decodes the smallest pyramid level of {@code hash} that is still fine enough for the target, or returns null
+     * when the original should be decoded instead.
+     */
+    private ImageFrameDecoder.Decoded loadMip(String hash, BlobEntry blob, int targetW, int targetH) {
+        if (!blob.mipsBuilt || blob.width <= 0 || blob.height <= 0) {
+            return null;
+        }
+        int level = ImageFrameMipPyramid.levelFor(requiredSubsample(hash, targetW, targetH), blob.mipMinLevel,
+                blob.mipMaxLevel);
+        if (level <= 0) {
+            return null;
+        }
+        Path path = cacheDir.resolve(ImageFrameMipPyramid.fileName(hash, blob.fileName, level));
+        ImageFrameDecoder.Decoded decoded;
+        byte[] encoded = null;
+        try {
+            decoded = timedDecode(path, 0, 0);
+            if (decoded != null) {
+                encoded = encodedFor(path);
+            }
+        } catch (IOException e) {
+            decoded = null;
+        }
+        if (decoded == null) {
+            // Missing or damaged level; rebuild the pyramid after the next decode of the original.
+            blob.mipsBuilt = false;
+            indexDirty.set(true);
+            return null;
+        }
+        mipDecodes.incrementAndGet();
+        int subsample = (1 << level) * decoded.subsample;
+        ImageFrameDecoder.Decoded scaled = new ImageFrameDecoder.Decoded(decoded.image, blob.width, blob.height,
+                subsample);
+        touch(blob);
+        putDecoded(hash, scaled, encoded, subsample);
+        return scaled;
+    }
+
+    /**
+     * Builds the pyramid for {@code hash} in the background, once per blob. {@code decoded} is the decode that was
+     * just made; when it is as fine as a full decode, the pyramid is built from it instead of decoding again.
+     */
+    private void scheduleMips(String hash, ImageFrameDecoder.Decoded decoded) {
+        BlobEntry blob = blobs.get(hash);
+        if (blob == null || blob.mipsBuilt || blob.width <= 0 || blob.height <= 0) {
+            return;
+        }
+        if (ImageFrameMipPyramid.maxLevel(blob.width, blob.height) == 0) {
+            blob.mipsBuilt = true;
+            indexDirty.set(true);
+            return;
+        }
+        if (!mipsBuilding.add(hash)) {
+            return;
+        }
+        ImageFrameDecoder.Decoded full = decoded.subsample <= fullDecodeSubsample(decoded) ? decoded : null;
+        try {
+            mipExecutor.execute(() -> {
+                try {
+                    buildMips(hash, blob, full);
+                } catch (IOException | RuntimeException ignored) {
+                    // Renders fall back to the original; the next decode tries again.
+                } finally {
+                    mipsBuilding.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mipsBuilding.remove(hash);
+        }
+    }
+
+    private void buildMips(String hash, BlobEntry blob, ImageFrameDecoder.Decoded full) throws IOException {
+        ImageFrameDecoder.Decoded decoded = full != null ? full : decoder.decode(cacheDir.resolve(blob.fileName), 0, 0);
+        if (decoded == null) {
+            return;
+        }
+        boolean jpeg = ImageFrameMipPyramid.isJpeg(blob.fileName);
+        int first = ImageFrameMipPyramid.firstLevel(decoded.subsample);
+        int last = ImageFrameMipPyramid.maxLevel(decoded.sourceWidth, decoded.sourceHeight);
+        long bytes = 0L;
+        if (first <= last) {
+            List<BufferedImage> levels = ImageFrameMipPyramid.build(decoded.image, decoded.sourceWidth,
+                    decoded.sourceHeight, first, last);
+            ensureCacheDir();
+            for (int i = 0; i < levels.size(); i++) {
+                byte[] encoded = ImageFrameMipPyramid.encode(levels.get(i), jpeg);
+                Path path = cacheDir.resolve(ImageFrameMipPyramid.fileName(hash, blob.fileName, first + i));
+                Path tmp = Files.createTempFile(cacheDir, hash, TMP_SUFFIX);
+                try {
+                    Files.write(tmp, encoded);
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+                bytes += encoded.length;
+            }
+        }
+        ReentrantLock blobLock = blobLockFor(hash);
+        blobLock.lock();
+        try {
+            if (blobs.get(hash) != blob) {
+                // Evicted while building; leave the files to the orphan sweep.
+                return;
+            }
+            blob.mipMinLevel = first <= last ? first : 0;
+            blob.mipMaxLevel = first <= last ? last : 0;
+            blob.mipBytes = bytes;
+            blob.mipsBuilt = true;
+            appendJournal(JournalRecord.putBlob(hash, blob));
+        } finally {
+            blobLock.unlock();
+        }
+    }
+
+    private void storeLocked(String url, SourceBytes source, String hash) throws IOException {
+        // Held until the alias is published, so an eviction of this hash either waits for it or runs first and
+        // leaves no blob to reuse.
+        ReentrantLock blobLock = blobLockFor(hash);
+        blobLock.lock();
+        try {
+            BlobEntry blob = blobs.get(hash);
+            if (blob == null || !Files.exists(cacheDir.resolve(blob.fileName))) {
+                ensureCacheDir();
+                String fileName = hash + "." + extensionFor(source);
+                if (source.file != null) {
+                    // Streamed downloads are already complete on disk next to the cache; renaming publishes them.
+                    Files.move(source.file, cacheDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Path tmp = Files.createTempFile(cacheDir, hash, TMP_SUFFIX);
+                    try {
+                        Files.write(tmp, source.bytes);
+                        Files.move(tmp, cacheDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        Files.deleteIfExists(tmp);
+                    }
+                }
+                blob = new BlobEntry();
+                blob.fileName = fileName;
+                blob.contentType = source.contentType;
+                blob.sizeBytes = source.size;
+                blob.lastAccess = System.currentTimeMillis();
+                blobs.put(hash, blob);
+                appendJournal(JournalRecord.putBlob(hash, blob));
+            }
+            touch(blob);
+            UrlEntry alias = new UrlEntry();
+            alias.contentHash = hash;
+            alias.etag = source.etag;
+            alias.lastModified = source.lastModified;
+            alias.validatedAt = System.currentTimeMillis();
+            putAlias(url, alias);
+            repin(url);
+            appendJournal(JournalRecord.putUrl(url, alias));
+        } finally {
+            blobLock.unlock();
+        }
+    }
+
+    @Override
+    public void retainUrl(String url) {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        synchronized (pinLock) {
+            urlRefs.merge(url, 1, Integer::sum);
+            repin(url);
+        }
+    }
+
+    @Override
+    public void releaseUrl(String url) {
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+        synchronized (pinLock) {
+            urlRefs.computeIfPresent(url, (key, count) -> count > 1 ? count - 1 : null);
+            repin(url);
+        }
+    }
+
+    public boolean isPinned(String hash) {
+        return hash != null && hashPins.containsKey(hash);
+    }
+
+    public int getReferenceCount(String url) {
+        synchronized (pinLock) {
+            return urlRefs.getOrDefault(url, 0);
+        }
+    }
+
+    /**
+     * Moves {@code url}'s pin to the hash it currently resolves to, or drops it once nothing references the URL.
+     */
+    private void repin(String url) {
+        synchronized (pinLock) {
+            String target = urlRefs.containsKey(url) ? getContentHash(url) : null;
+            String previous = pinnedHashByUrl.get(url);
+            if (Objects.equals(previous, target)) {
+                return;
+            }
+            if (previous != null) {
+                hashPins.computeIfPresent(previous, (key, count) -> count > 1 ? count - 1 : null);
+                pinnedHashByUrl.remove(url);
+            }
+            if (target != null) {
+                hashPins.merge(target, 1, Integer::sum);
+                pinnedHashByUrl.put(url, target);
+            }
+        }
+    }
+
+    /**
+     * Drops aliases and blobs whose files are gone, deletes files the index no longer knows about, then evicts the
+     * least recently used blobs (with every URL pointing at them) until the directory fits the disk budget. Pinned
+     * blobs are never evicted. Removals are journaled like stores; the snapshot is only rewritten for access times.
+     */
+    public void sweepDisk() throws IOException {
+        Set<String> knownFiles = new HashSet<>();
+        for (Map.Entry<String, BlobEntry> e : blobs.entrySet()) {
+            BlobEntry blob = e.getValue();
+            Path path = blob.fileName != null ? cacheDir.resolve(blob.fileName) : null;
+            if (path == null || !Files.exists(path)) {
+                if (blobs.remove(e.getKey(), blob)) {
+                    appendJournal(JournalRecord.removeBlob(e.getKey()));
+                }
+                continue;
+            }
+            if (blob.sizeBytes <= 0) {
+                blob.sizeBytes = Files.size(path);
+                appendJournal(JournalRecord.putBlob(e.getKey(), blob));
+            }
+            knownFiles.add(blob.fileName);
+            for (int level = blob.mipMinLevel; level > 0 && level <= blob.mipMaxLevel; level++) {
+                knownFiles.add(ImageFrameMipPyramid.fileName(e.getKey(), blob.fileName, level));
+            }
+        }
+        for (Map.Entry<String, UrlEntry> e : urls.entrySet()) {
+            if (blobs.containsKey(e.getValue().contentHash)) {
+                continue;
+            }
+            ReentrantLock lock = lockFor(e.getKey());
+            lock.lock();
+            try {
+                // Rechecked under the URL's lock; a store may have brought the blob back meanwhile.
+                if (!blobs.containsKey(e.getValue().contentHash) && removeAlias(e.getKey(), e.getValue())) {
+                    appendJournal(JournalRecord.removeUrl(e.getKey()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (Files.isDirectory(cacheDir)) {
+            long staleCutoff = System.currentTimeMillis() - ORPHAN_GRACE_MILLIS;
+            try (var stream = Files.list(cacheDir)) {
+                for (Path path : (Iterable<Path>) stream::iterator) {
+                    String name = path.getFileName().toString();
+                    if (knownFiles.contains(name)) {
+                        continue;
+                    }
+                    if (Files.getLastModifiedTime(path).toMillis() > staleCutoff) {
+                        // Probably a download still being written or indexed.
+                        continue;
+                    }
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+
+        long totalBytes = 0L;
+        for (BlobEntry blob : blobs.values()) {
+            totalBytes += blob.sizeBytes + blob.mipBytes;
         }
-        CacheEntry entry = index.get(url);
-        if (entry != null && entry.fileName != null) {
-            Path path = cacheDir.resolve(entry.fileName);
-            if (Files.exists(path)) {
-                BufferedImage img = ImageIO.read(path.toFile());
-                if (img != null) {
-                    memoryCache.put(url, img);
-                    return img;
+        long maxBytes = diskMaxBytes;
+        if (totalBytes > maxBytes) {
+            List<Map.Entry<String, BlobEntry>> candidates = new ArrayList<>();
+            for (Map.Entry<String, BlobEntry> e : blobs.entrySet()) {
+                if (!isPinned(e.getKey())) {
+                    candidates.add(e);
+                }
+            }
+            candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<String, BlobEntry> e : candidates) {
+                if (totalBytes <= maxBytes) {
+                    break;
+                }
+                BlobEntry evicted = e.getValue();
+                if (!evict(e.getKey(), evicted)) {
+                    continue;
                 }
+                totalBytes -= evicted.sizeBytes + evicted.mipBytes;
+                diskEvictions.incrementAndGet();
             }
         }
-        BufferedImage downloaded = downloader.get();
-        if (downloaded == null) {
-            throw new IOException("Failed to download image");
+        if (indexDirty.get()) {
+            compactIndex();
+        }
+    }
+
+    /**
+     * Evicts {@code blob} with every URL aliasing it. The URLs' locks and then the blob's are held throughout, so a
+     * store of this hash either finished first, and a URL it added keeps the blob, or runs after and stores it anew.
+     */
+    private boolean evict(String hash, BlobEntry blob) throws IOException {
+        Set<String> aliases = urlsByHash.getOrDefault(hash, Set.of());
+        // Stripes are taken in index order, so two sweeps never wait on each other.
+        int[] stripes = aliases.stream().mapToInt(ImageFrameImageCache::stripeOf).distinct().sorted().toArray();
+        for (int stripe : stripes) {
+            urlLocks[stripe].lock();
+        }
+        ReentrantLock blobLock = blobLockFor(hash);
+        blobLock.lock();
+        try {
+            if (isPinned(hash) || !aliases.equals(urlsByHash.getOrDefault(hash, Set.of()))
+                    || !blobs.remove(hash, blob)) {
+                return false;
+            }
+            appendJournal(JournalRecord.removeBlob(hash));
+            for (String url : aliases) {
+                UrlEntry alias = urls.get(url);
+                if (alias != null && hash.equals(alias.contentHash) && removeAlias(url, alias)) {
+                    appendJournal(JournalRecord.removeUrl(url));
+                }
+            }
+            memoryTier.remove(hash);
+            residentSubsample.remove(hash);
+            Files.deleteIfExists(cacheDir.resolve(blob.fileName));
+            for (int level = blob.mipMinLevel; level > 0 && level <= blob.mipMaxLevel; level++) {
+                Files.deleteIfExists(cacheDir.resolve(ImageFrameMipPyramid.fileName(hash, blob.fileName, level)));
+            }
+            return true;
+        } finally {
+            blobLock.unlock();
+            for (int stripe : stripes) {
+                urlLocks[stripe].unlock();
+            }
         }
-        store(url, downloaded);
-        return downloaded;
     }
 
-    public synchronized void store(String url, BufferedImage image) throws IOException {
+    /**
+     * How long a cached URL is served before the origin is asked whether it changed; 0 or less never asks.
+     */
+    public void setRevalidateAfterMillis(long millis) {
+        this.revalidateAfterMillis = Math.max(0L, millis);
+    }
+
+    public long getRevalidateAfterMillis() {
+        return revalidateAfterMillis;
+    }
+
+    public void setDiskCacheMaxBytes(long maxBytes) {
+        this.diskMaxBytes = Math.max(0L, maxBytes);
+    }
+
+    public long getDiskCacheMaxBytes() {
+        return diskMaxBytes;
+    }
+
+    public long getDiskEvictions() {
+        return diskEvictions.get();
+    }
+
+    public long getDedupHits() {
+        return dedupHits.get();
+    }
+
+    public int getUrlCount() {
+        return urls.size();
+    }
+
+    public int getBlobCount() {
+        return blobs.size();
+    }
+
+    /**
+     * Swaps the memory tier, carrying over the current budget. Meant for startup, before renders begin; images
+     * resident in the old tier are dropped and reload from disk.
+     */
+    public void setMemoryTier(ImageFrameMemoryTier tier) {
+        ImageFrameMemoryTier previous = memoryTier;
+        tier.setMaxBytes(previous.getMaxBytes());
+        tier.setPinFilter(this::isPinned);
+        memoryTier = tier;
+        previous.clear();
+        residentSubsample.clear();
+    }
+
+    /**
+     * Where source pyramids are built after a first decode. Defaults to the decoding thread itself.
+     */
+    public void setMipExecutor(Executor executor) {
+        this.mipExecutor = executor != null ? executor : Runnable::run;
+    }
+
+    /**
+     * Where downloads are streamed before being moved into the cache; on the same file system, so the move is a
+     * rename.
+     */
+    public Path getDownloadDir() throws IOException {
         ensureCacheDir();
-        String fileName = fileNameForUrl(url);
-        Path path = cacheDir.resolve(fileName);
-        ImageIO.write(image, "png", path.toFile());
-        CacheEntry entry = new CacheEntry();
-        entry.fileName = fileName;
-        index.put(url, entry);
-        saveIndex();
-        memoryCache.put(url, image);
+        return cacheDir;
+    }
+
+    public Path getCacheDir() {
+        return cacheDir;
+    }
+
+    public ImageFrameDecoder getDecoder() {
+        return decoder;
+    }
+
+    public ImageFrameMemoryTier getMemoryTier() {
+        return memoryTier;
+    }
+
+    public void setMemoryCacheMaxBytes(long maxBytes) {
+        memoryTier.setMaxBytes(maxBytes);
+    }
+
+    public long getMemoryCacheMaxBytes() {
+        return memoryTier.getMaxBytes();
+    }
+
+    public long getMemoryResidentBytes() {
+        return memoryTier.getResidentBytes();
+    }
+
+    public int getMemoryEntryCount() {
+        return memoryTier.size();
+    }
+
+    public long getMemoryHits() {
+        return memoryTier.getHits();
+    }
+
+    public long getMemoryMisses() {
+        return memoryTier.getMisses();
+    }
+
+    public long getMemoryEvictions() {
+        return memoryTier.getEvictions();
+    }
+
+    public Stats getStats() {
+        long diskBytes = 0L;
+        for (BlobEntry blob : blobs.values()) {
+            diskBytes += blob.sizeBytes + blob.mipBytes;
+        }
+        ImageFrameMemoryTier tier = memoryTier;
+        Stats stats = new Stats();
+        stats.memoryTier = tier.getClass().getSimpleName();
+        stats.memoryHits = tier.getHits();
+        stats.memoryMisses = tier.getMisses();
+        stats.memoryEvictions = tier.getEvictions();
+        stats.memoryEntries = tier.size();
+        stats.memoryResidentBytes = tier.getResidentBytes();
+        stats.memoryMaxBytes = tier.getMaxBytes();
+        stats.diskHits = diskHits.get();
+        stats.diskMisses = diskMisses.get();
+        stats.diskEvictions = diskEvictions.get();
+        stats.diskBytes = diskBytes;
+        stats.diskMaxBytes = diskMaxBytes;
+        stats.urlCount = urls.size();
+        stats.blobCount = blobs.size();
+        stats.dedupHits = dedupHits.get();
+        stats.downloads = downloads.get();
+        stats.downloadedBytes = downloadedBytes.get();
+        stats.decodes = decodes.get();
+        stats.decodeNanos = decodeNanos.get();
+        stats.mipDecodes = mipDecodes.get();
+        stats.revalidations = revalidations.get();
+        stats.notModified = notModified.get();
+        stats.inFlight = inFlight.size();
+        stats.pinnedBlobs = hashPins.size();
+        return stats;
+    }
+
+    /**
+     * One row per cached URL with the blob it resolves to, most recently used first.
+     */
+    public List<UrlInfo> listUrls() {
+        List<UrlInfo> rows = new ArrayList<>();
+        for (Map.Entry<String, UrlEntry> e : urls.entrySet()) {
+            String hash = e.getValue().contentHash;
+            BlobEntry blob = hash != null ? blobs.get(hash) : null;
+            if (blob == null) {
+                continue;
+            }
+            UrlInfo row = new UrlInfo();
+            row.url = e.getKey();
+            row.contentHash = hash;
+            row.sizeBytes = blob.sizeBytes;
+            row.lastAccess = blob.lastAccess;
+            row.inMemory = memoryTier.contains(hash);
+            row.pinned = isPinned(hash);
+            rows.add(row);
+        }
+        rows.sort(Comparator.comparingLong((UrlInfo row) -> row.lastAccess).reversed());
+        return rows;
     }
 
     private void loadIndex() {
-        if (!Files.exists(indexPath)) {
+        JsonElement root = null;
+        if (Files.exists(indexPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(indexPath)) {
+                root = JsonParser.parseReader(reader);
+            } catch (Exception ignored) {
+            }
+        }
+        if (root != null && root.isJsonObject()) {
+            JsonObject obj = root.getAsJsonObject();
+            if (obj.has("urls") && obj.has("blobs")) {
+                IndexFile loaded = GSON.fromJson(obj, IndexFile.class);
+                if (loaded.urls != null) {
+                    urls.putAll(loaded.urls);
+                }
+                if (loaded.blobs != null) {
+                    blobs.putAll(loaded.blobs);
+                }
+            } else {
+                migrateLegacyIndex(GSON.fromJson(obj, LEGACY_INDEX_TYPE));
+            }
+        }
+        replayJournal();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, UrlEntry> e : urls.entrySet()) {
+            UrlEntry alias = e.getValue();
+            if (alias.validatedAt <= 0L) {
+                // Cached before validators were recorded; start its interval now instead of refetching at once.
+                alias.validatedAt = now;
+            }
+            indexAlias(e.getKey(), alias.contentHash);
+        }
+    }
+
+    private void replayJournal() {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalPath)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JournalRecord record;
+                try {
+                    record = JOURNAL_GSON.fromJson(line, JournalRecord.class);
+                } catch (RuntimeException e) {
+                    // A torn final line from a crash mid-append; everything before it is intact.
+                    break;
+                }
+                if (record == null || record.op == null) {
+                    continue;
+                }
+                switch (record.op) {
+                    case JournalRecord.PUT_URL -> {
+                        if (record.key != null && record.url != null) {
+                            urls.put(record.key, record.url);
+                        }
+                    }
+                    case JournalRecord.PUT_BLOB -> {
+                        if (record.key != null && record.blob != null) {
+                            blobs.put(record.key, record.blob);
+                        }
+                    }
+                    case JournalRecord.REMOVE_URL -> urls.remove(record.key);
+                    case JournalRecord.REMOVE_BLOB -> blobs.remove(record.key);
+                    default -> {
+                    }
+                }
+                replayed++;
+            }
+        } catch (IOException ignored) {
+        }
+        if (replayed > 0) {
+            try {
+                compactIndex();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void migrateLegacyIndex(Map<String, LegacyEntry> legacy) {
+        // Older indexes keyed files by sha256(url); rename each one to its content hash.
+        if (legacy == null || legacy.isEmpty()) {
             return;
         }
-        try (BufferedReader reader = Files.newBufferedReader(indexPath)) {
-            Map<String, CacheEntry> loaded = GSON.fromJson(reader, INDEX_TYPE);
-            if (loaded != null) {
-                index.clear();
-                index.putAll(loaded);
+        for (Map.Entry<String, LegacyEntry> e : legacy.entrySet()) {
+            LegacyEntry old = e.getValue();
+            if (old == null || old.fileName == null) {
+                continue;
+            }
+            Path oldPath = cacheDir.resolve(old.fileName);
+            try {
+                if (!Files.exists(oldPath)) {
+                    continue;
+                }
+                byte[] bytes = Files.readAllBytes(oldPath);
+                String hash = sha256(bytes);
+                if (!blobs.containsKey(hash)) {
+                    String ext = extensionFor(new SourceBytes(bytes, old.contentType));
+                    String fileName = hash + "." + ext;
+                    Files.move(oldPath, cacheDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+                    BlobEntry blob = new BlobEntry();
+                    blob.fileName = fileName;
+                    blob.contentType = old.contentType;
+                    blob.sizeBytes = bytes.length;
+                    blob.lastAccess = old.lastAccess;
+                    blobs.put(hash, blob);
+                } else {
+                    Files.deleteIfExists(oldPath);
+                }
+                UrlEntry alias = new UrlEntry();
+                alias.contentHash = hash;
+                urls.put(e.getKey(), alias);
+            } catch (IOException ignored) {
             }
+        }
+        try {
+            compactIndex();
         } catch (IOException ignored) {
         }
     }
 
-    private void saveIndex() throws IOException {
-        ensureCacheDir();
-        if (indexPath.getParent() != null) {
-            Files.createDirectories(indexPath.getParent());
+    private ReentrantLock lockFor(String url) {
+        return urlLocks[stripeOf(url)];
+    }
+
+    private ReentrantLock blobLockFor(String hash) {
+        return blobLocks[stripeOf(hash)];
+    }
+
+    private static int stripeOf(String key) {
+        return (key.hashCode() & 0x7fffffff) % LOCK_STRIPES;
+    }
+
+    private void putAlias(String url, UrlEntry alias) {
+        UrlEntry previous = urls.put(url, alias);
+        if (previous != null && !Objects.equals(previous.contentHash, alias.contentHash)) {
+            unindexAlias(url, previous.contentHash);
+        }
+        indexAlias(url, alias.contentHash);
+    }
+
+    private boolean removeAlias(String url, UrlEntry alias) {
+        if (!urls.remove(url, alias)) {
+            return false;
+        }
+        unindexAlias(url, alias.contentHash);
+        return true;
+    }
+
+    private void indexAlias(String url, String hash) {
+        if (hash != null) {
+            urlsByHash.merge(hash, Set.of(url), (current, added) -> {
+                Set<String> merged = new HashSet<>(current);
+                merged.addAll(added);
+                return Set.copyOf(merged);
+            });
+        }
+    }
+
+    private void unindexAlias(String url, String hash) {
+        if (hash != null) {
+            urlsByHash.computeIfPresent(hash, (key, current) -> {
+                Set<String> rest = new HashSet<>(current);
+                rest.remove(url);
+                return rest.isEmpty() ? null : Set.copyOf(rest);
+            });
+        }
+    }
+
+    private void touch(BlobEntry blob) {
+        if (blob != null) {
+            blob.lastAccess = System.currentTimeMillis();
+            indexDirty.set(true);
+        }
+    }
+
+    private void appendJournal(JournalRecord record) throws IOException {
+        String line = JOURNAL_GSON.toJson(record);
+        boolean compact;
+        journalLock.lock();
+        try {
+            if (journalWriter == null) {
+                if (journalPath.getParent() != null) {
+                    Files.createDirectories(journalPath.getParent());
+                }
+                journalWriter = Files.newBufferedWriter(journalPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            }
+            journalWriter.write(line);
+            journalWriter.newLine();
+            journalWriter.flush();
+            journalRecords++;
+            compact = journalRecords >= JOURNAL_COMPACT_RECORDS;
+        } finally {
+            journalLock.unlock();
+        }
+        if (compact) {
+            compactIndex();
         }
-        try (BufferedWriter writer = Files.newBufferedWriter(indexPath)) {
-            writer.write(GSON.toJson(index));
+    }
+
+    /**
+     * Writes a full snapshot of the index next to the live file, swaps it in with an atomic rename, and only then
+     * truncates the journal. A crash at any point leaves either the old snapshot plus its journal or the new
+     * snapshot, and replaying journal records onto a newer snapshot is harmless.
+     */
+    private void compactIndex() throws IOException {
+        journalLock.lock();
+        try {
+            indexDirty.set(false);
+            if (indexPath.getParent() != null) {
+                Files.createDirectories(indexPath.getParent());
+            }
+            IndexFile snapshot = new IndexFile();
+            snapshot.urls = new HashMap<>(urls);
+            snapshot.blobs = new HashMap<>(blobs);
+            Path tmp = indexPath.resolveSibling(indexPath.getFileName() + TMP_SUFFIX);
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp)) {
+                writer.write(GSON.toJson(snapshot));
+            }
+            Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (journalWriter != null) {
+                journalWriter.close();
+                journalWriter = null;
+            }
+            Files.deleteIfExists(journalPath);
+            journalRecords = 0;
+        } catch (IOException e) {
+            indexDirty.set(true);
+            throw e;
+        } finally {
+            journalLock.unlock();
         }
     }
 
@@ -99,14 +1226,86 @@ public class ImageFrameImageCache {
         Files.createDirectories(cacheDir);
     }
 
-    private String fileNameForUrl(String url) {
-        return sha256(url) + ".png";
+    private ImageFrameDecoder.Decoded timedDecode(SourceBytes source, int targetW, int targetH) throws IOException {
+        if (source.file != null) {
+            return timedDecode(source.file, targetW, targetH);
+        }
+        long start = System.nanoTime();
+        try {
+            return decoder.decode(source.bytes, targetW, targetH);
+        } finally {
+            decodes.incrementAndGet();
+            decodeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private ImageFrameDecoder.Decoded timedDecode(Path file, int targetW, int targetH) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return decoder.decode(file, targetW, targetH);
+        } finally {
+            decodes.incrementAndGet();
+            decodeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The encoded bytes for the memory tier, read only for tiers that keep them instead of pixels.
+     */
+    private byte[] encodedFor(SourceBytes source) throws IOException {
+        if (memoryTier.keepsDecodedPixels()) {
+            return null;
+        }
+        return source.bytes != null ? source.bytes : Files.readAllBytes(source.file);
+    }
+
+    private byte[] encodedFor(Path file) throws IOException {
+        return memoryTier.keepsDecodedPixels() ? null : Files.readAllBytes(file);
+    }
+
+    private static String extensionFor(SourceBytes source) {
+        String suffix = readerSuffix(source);
+        if (suffix != null && !suffix.isEmpty()) {
+            return suffix;
+        }
+        String type = source.contentType != null ? source.contentType.toLowerCase(Locale.ROOT) : "";
+        int slash = type.indexOf('/');
+        if (type.startsWith("image/") && slash >= 0) {
+            String subtype = type.substring(slash + 1);
+            int semi = subtype.indexOf(';');
+            subtype = (semi >= 0 ? subtype.substring(0, semi) : subtype).trim();
+            if (subtype.matches("[a-z0-9]+")) {
+                return "jpeg".equals(subtype) ? "jpg" : subtype;
+            }
+        }
+        return "img";
+    }
+
+    /**
+     * The file suffix of the first image reader that recognizes {@code source} (possibly empty), or null if none
+     * does. Only the header is read.
+     */
+    private static String readerSuffix(SourceBytes source) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.file != null
+                ? source.file.toFile()
+                : new ByteArrayInputStream(source.bytes))) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            String[] suffixes = reader.getOriginatingProvider().getFileSuffixes();
+            reader.dispose();
+            return suffixes != null && suffixes.length > 0 ? suffixes[0].toLowerCase(Locale.ROOT) : "";
+        } catch (IOException e) {
+            return null;
+        }
     }
 
-    private String sha256(String input) {
+    static String sha256(byte[] input) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(input.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            byte[] hash = digest.digest(input);
             StringBuilder sb = new StringBuilder();
             for (byte b : hash) {
                 sb.append(String.format("%02x", b));
@@ -117,7 +1316,199 @@ public class ImageFrameImageCache {
         }
     }
 
-    private static class CacheEntry {
+    /**
+     * Fetches the bytes behind a URL. {@code previous} is null for a plain fetch; when the cache is revalidating a
+     * copy it holds the validators that copy was served with, and a fetcher able to make a conditional request
+     * returns {@link SourceBytes#notModified(String, String)} if the copy is still current.
+     */
+    @FunctionalInterface
+    public interface SourceFetcher {
+        SourceBytes fetch(Validators previous) throws IOException;
+    }
+
+    public static class Validators {
+        public final String etag;
+        public final String lastModified;
+
+        public Validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * The exact bytes of a downloaded image together with the content type and validators the server reported.
+     */
+    public static class SourceBytes {
+        public final byte[] bytes;
+        // Set instead of bytes for downloads streamed to a temp file in the cache directory.
+        public final Path file;
+        public final String contentType;
+        public final long size;
+        public final String etag;
+        public final String lastModified;
+        // The origin confirmed the cached copy; there are no bytes.
+        public final boolean notModified;
+        private final String sha256;
+
+        public SourceBytes(byte[] bytes, String contentType) {
+            this(bytes, null, contentType, bytes != null ? bytes.length : 0L, null, null, null, false);
+        }
+
+        private SourceBytes(byte[] bytes, Path file, String contentType, long size, String sha256, String etag,
+                String lastModified, boolean notModified) {
+            this.bytes = bytes;
+            this.file = file;
+            this.contentType = contentType;
+            this.size = size;
+            this.sha256 = sha256;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.notModified = notModified;
+        }
+
+        /**
+         * A complete download in {@code file}, which the cache moves into place or deletes.
+         */
+        public static SourceBytes ofFile(Path file, String contentType, long size, String sha256, String etag,
+                String lastModified) {
+            return new SourceBytes(null, file, contentType, size, sha256, etag, lastModified, false);
+        }
+
+        /**
+         * A {@code 304} answer, with any validators the origin sent along to replace the stored ones.
+         */
+        public static SourceBytes notModified(String etag, String lastModified) {
+            return new SourceBytes(null, null, null, 0L, null, etag, lastModified, true);
+        }
+
+        String hash() {
+            return sha256 != null ? sha256 : ImageFrameImageCache.sha256(bytes);
+        }
+
+        /**
+         * Deletes the temp file if it was not moved into the cache.
+         */
+        void discard() {
+            if (file == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Point-in-time counters for the memory and disk tiers. Hit/miss counters are cumulative since startup.
+     */
+    public static class Stats {
+        public String memoryTier;
+        public long memoryHits;
+        public long memoryMisses;
+        public long memoryEvictions;
+        public int memoryEntries;
+        public long memoryResidentBytes;
+        public long memoryMaxBytes;
+        public long diskHits;
+        public long diskMisses;
+        public long diskEvictions;
+        public long diskBytes;
+        public long diskMaxBytes;
+        public int urlCount;
+        public int blobCount;
+        public long dedupHits;
+        public long downloads;
+        public long downloadedBytes;
+        public long decodes;
+        public long decodeNanos;
+        public long mipDecodes;
+        public long revalidations;
+        public long notModified;
+        public int inFlight;
+        public int pinnedBlobs;
+    }
+
+    public static class UrlInfo {
+        public String url;
+        public String contentHash;
+        public long sizeBytes;
+        public long lastAccess;
+        public boolean inMemory;
+        public boolean pinned;
+    }
+
+    private static class JournalRecord {
+        static final String PUT_URL = "url";
+        static final String PUT_BLOB = "blob";
+        static final String REMOVE_URL = "-url";
+        static final String REMOVE_BLOB = "-blob";
+
+        String op;
+        String key;
+        UrlEntry url;
+        BlobEntry blob;
+
+        static JournalRecord putUrl(String url, UrlEntry entry) {
+            JournalRecord record = new JournalRecord();
+            record.op = PUT_URL;
+            record.key = url;
+            record.url = entry;
+            return record;
+        }
+
+        static JournalRecord putBlob(String hash, BlobEntry entry) {
+            JournalRecord record = new JournalRecord();
+            record.op = PUT_BLOB;
+            record.key = hash;
+            record.blob = entry;
+            return record;
+        }
+
+        static JournalRecord removeUrl(String url) {
+            JournalRecord record = new JournalRecord();
+            record.op = REMOVE_URL;
+            record.key = url;
+            return record;
+        }
+
+        static JournalRecord removeBlob(String hash) {
+            JournalRecord record = new JournalRecord();
+            record.op = REMOVE_BLOB;
+            record.key = hash;
+            return record;
+        }
+    }
+
+    private static class IndexFile {
+        Map<String, UrlEntry> urls;
+        Map<String, BlobEntry> blobs;
+    }
+
+    private static class UrlEntry {
+        String contentHash;
+        String etag;
+        String lastModified;
+        long validatedAt;
+    }
+
+    private static class BlobEntry {
+        String fileName;
+        String contentType;
+        volatile int width;
+        volatile int height;
+        volatile long sizeBytes;
+        volatile boolean mipsBuilt;
+        volatile int mipMinLevel;
+        volatile int mipMaxLevel;
+        volatile long mipBytes;
+        volatile long lastAccess;
+    }
+
+    private static class LegacyEntry {
         String fileName;
+        String contentType;
+        long lastAccess;
     }
 }
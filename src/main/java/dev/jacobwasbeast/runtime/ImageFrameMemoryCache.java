@@ -0,0 +1,161 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Byte-bounded LRU of decoded images. Entries are accounted by the size of their raster data buffer,
+ * and the least recently used entries are evicted once the budget is exceeded.
+ */
+public class ImageFrameMemoryCache implements ImageFrameMemoryTier {
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile Predicate<String> pinned = key -> false;
+    private long maxBytes;
+    private long residentBytes;
+
+    public ImageFrameMemoryCache(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+    }
+
+    @Override
+    public synchronized ImageFrameSourceHandle acquire(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return ImageFrameSourceHandle.unmanaged(entry.image);
+    }
+
+    @Override
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    @Override
+    public synchronized ImageFrameSourceHandle acquireQuiet(String key) {
+        Entry entry = entries.get(key);
+        return entry != null ? ImageFrameSourceHandle.unmanaged(entry.image) : null;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public synchronized void put(String key, BufferedImage image, byte[] encoded) {
+        if (key == null || image == null) {
+            return;
+        }
+        remove(key);
+        long bytes = estimateBytes(image);
+        if (bytes > maxBytes) {
+            // Larger than the whole budget; the disk tier still serves it.
+            return;
+        }
+        entries.put(key, new Entry(image, bytes));
+        residentBytes += bytes;
+        evictToBudget();
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            residentBytes -= removed.bytes;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        residentBytes = 0L;
+    }
+
+    @Override
+    public void setPinFilter(Predicate<String> pinned) {
+        this.pinned = pinned != null ? pinned : key -> false;
+    }
+
+    @Override
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+        evictToBudget();
+    }
+
+    @Override
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private void evictToBudget() {
+        // Unpinned entries go first, least recently used first; pinned ones only if that was not enough.
+        evictPass(false);
+        evictPass(true);
+    }
+
+    private void evictPass(boolean includePinned) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (residentBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> next = it.next();
+            if (!includePinned && pinned.test(next.getKey())) {
+                continue;
+            }
+            Entry eldest = next.getValue();
+            it.remove();
+            residentBytes -= eldest.bytes;
+            evictions.incrementAndGet();
+        }
+    }
+
+    static long estimateBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        long elementBytes = Math.max(1, DataBuffer.getDataTypeSize(buffer.getDataType()) / 8);
+        return (long) buffer.getSize() * buffer.getNumBanks() * elementBytes;
+    }
+
+    private static class Entry {
+        final BufferedImage image;
+        final long bytes;
+
+        Entry(BufferedImage image, long bytes) {
+            this.image = image;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.function.Predicate;
+
+/**
+ * The memory tier of {@link ImageFrameImageCache}, keyed by content hash. Images are borrowed through
+ * {@link ImageFrameSourceHandle}s so tiers that keep pixels outside the heap know when a render is done with them.
+ */
+public interface ImageFrameMemoryTier {
+    /**
+     * Borrows the image stored under {@code key}, counting a hit or miss. Returns null on a miss.
+     */
+    ImageFrameSourceHandle acquire(String key);
+
+    /**
+     * Same as {@link #acquire} without touching the hit/miss counters, for re-checks after a counted miss.
+     */
+    ImageFrameSourceHandle acquireQuiet(String key);
+
+    boolean contains(String key);
+
+    /**
+     * Whether borrows return the pixels given to {@link #put}. Tiers that keep only the encoded bytes return false,
+     * since they decode again at full resolution.
+     */
+    default boolean keepsDecodedPixels() {
+        return true;
+    }
+
+    /**
+     * Stores a decoded image together with the encoded bytes it came from; each tier keeps whichever form it is
+     * built around.
+     */
+    void put(String key, BufferedImage image, byte[] encoded);
+
+    void remove(String key);
+
+    void clear();
+
+    /**
+     * Keys matching {@code pinned} are only evicted once every unpinned entry is gone and the tier is still over
+     * budget.
+     */
+    void setPinFilter(Predicate<String> pinned);
+
+    void recordMiss();
+
+    void setMaxBytes(long maxBytes);
+
+    long getMaxBytes();
+
+    long getResidentBytes();
+
+    int size();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+}
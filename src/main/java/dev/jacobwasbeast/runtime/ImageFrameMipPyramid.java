@@ -0,0 +1,152 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Halving levels of a cached source, stored next to its blob as {@code <hash>.mip<level>.jpg} for JPEG sources and
+ * {@code <hash>.mip<level>.png} for everything else. Level {@code n} is the source scaled by 1/2^n, so a render far
+ * below the source size decodes a small level instead of the original.
+ */
+final class ImageFrameMipPyramid {
+    // Levels stop once either edge would drop below this; smaller levels save next to nothing.
+    static final int MIN_LEVEL_EDGE = 32;
+    // Levels are only ever downscaled further, so a little loss on top of the source's own is not visible.
+    private static final float JPEG_QUALITY = 0.9f;
+
+    private ImageFrameMipPyramid() {
+    }
+
+    /**
+     * The file of {@code level} for the source stored as {@code sourceFileName}.
+     */
+    static String fileName(String hash, String sourceFileName, int level) {
+        return hash + ".mip" + level + (isJpeg(sourceFileName) ? ".jpg" : ".png");
+    }
+
+    /**
+     * Whether levels of the source stored as {@code sourceFileName} are written as JPEG. A lossless source keeps
+     * lossless levels, and a lossy one does not pay PNG's size for detail it never had.
+     */
+    static boolean isJpeg(String sourceFileName) {
+        String name = sourceFileName != null ? sourceFileName.toLowerCase(Locale.ROOT) : "";
+        return name.endsWith(".jpg") || name.endsWith(".jpeg");
+    }
+
+    /**
+     * Encodes a level as JPEG or PNG. Opaque levels are written without an alpha channel either way.
+     */
+    static byte[] encode(BufferedImage level, boolean jpeg) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!jpeg) {
+            ImageIO.write(level, "png", out);
+            return out.toByteArray();
+        }
+        BufferedImage rgb = level;
+        if (level.getType() != BufferedImage.TYPE_INT_RGB) {
+            rgb = new BufferedImage(level.getWidth(), level.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = rgb.createGraphics();
+            g.drawImage(level, 0, 0, null);
+            g.dispose();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The deepest level that is worth building for a {@code width x height} source, or 0 for none.
+     */
+    static int maxLevel(int width, int height) {
+        int level = 0;
+        while (level < 30 && (width >> (level + 1)) >= MIN_LEVEL_EDGE && (height >> (level + 1)) >= MIN_LEVEL_EDGE) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * The shallowest level an image decoded at {@code subsample} can still produce.
+     */
+    static int firstLevel(int subsample) {
+        int level = 1;
+        while ((1 << level) < subsample && level < 30) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * The deepest stored level that is still at least as fine as {@code requiredSubsample}, or 0 to use the
+     * original.
+     */
+    static int levelFor(int requiredSubsample, int minLevel, int maxLevel) {
+        if (minLevel <= 0 || maxLevel < minLevel || requiredSubsample < 2) {
+            return 0;
+        }
+        int level = Math.min(maxLevel, 31 - Integer.numberOfLeadingZeros(requiredSubsample));
+        return level >= minLevel ? level : 0;
+    }
+
+    static int levelWidth(int width, int level) {
+        return Math.max(1, (width + (1 << level) - 1) >> level);
+    }
+
+    static int levelHeight(int height, int level) {
+        return Math.max(1, (height + (1 << level) - 1) >> level);
+    }
+
+    /**
+     * Builds levels {@code firstLevel..lastLevel} of a {@code sourceWidth x sourceHeight} source from {@code image},
+     * a decode of it at any resolution at least as fine as {@code firstLevel}. Each level is filtered down from the
+     * one above it.
+     */
+    static List<BufferedImage> build(BufferedImage image, int sourceWidth, int sourceHeight, int firstLevel,
+            int lastLevel) {
+        List<BufferedImage> levels = new ArrayList<>();
+        BufferedImage current = image;
+        for (int level = firstLevel; level <= lastLevel; level++) {
+            int w = levelWidth(sourceWidth, level);
+            int h = levelHeight(sourceHeight, level);
+            // A subsampled decode can sit anywhere between two levels; halve until the next step is the last one.
+            while (current.getWidth() / 2 > w && current.getHeight() / 2 > h) {
+                current = scale(current, current.getWidth() / 2, current.getHeight() / 2);
+            }
+            if (current.getWidth() != w || current.getHeight() != h) {
+                current = scale(current, w, h);
+            }
+            levels.add(current);
+        }
+        return levels;
+    }
+
+    private static BufferedImage scale(BufferedImage src, int w, int h) {
+        int type = src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage img = new BufferedImage(w, h, type);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(src, 0, 0, w, h, null);
+        g.dispose();
+        return img;
+    }
+}
@@ -0,0 +1,268 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Byte-bounded LRU that keeps decoded pixels as packed ARGB in direct buffers, outside the Java heap. A borrowed
+ * entry is exposed as a {@link BufferedImage} view over its buffer for the length of the render; an entry evicted
+ * while borrowed keeps its buffer until the last handle closes, and is then freed immediately rather than waiting
+ * for the garbage collector.
+ */
+public class ImageFrameOffHeapCache implements ImageFrameMemoryTier {
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile Predicate<String> pinned = key -> false;
+    private long maxBytes;
+    private long residentBytes;
+    private long allocatedBytes;
+    private int activeLeases;
+
+    public ImageFrameOffHeapCache(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+    }
+
+    @Override
+    public synchronized ImageFrameSourceHandle acquire(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return lease(entry);
+    }
+
+    @Override
+    public synchronized ImageFrameSourceHandle acquireQuiet(String key) {
+        Entry entry = entries.get(key);
+        return entry != null ? lease(entry) : null;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    @Override
+    public void put(String key, BufferedImage image, byte[] encoded) {
+        if (key == null || image == null) {
+            return;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long bytes = (long) width * height * Integer.BYTES;
+        synchronized (this) {
+            if (bytes > maxBytes || bytes > Integer.MAX_VALUE) {
+                // Larger than the whole budget; the disk tier still serves it.
+                remove(key);
+                return;
+            }
+        }
+        // Copy row by row so the transfer never needs a second full-size array on the heap.
+        ByteBuffer pixels = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        IntBuffer ints = pixels.asIntBuffer();
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            ints.put(row);
+        }
+        synchronized (this) {
+            remove(key);
+            allocatedBytes += bytes;
+            entries.put(key, new Entry(pixels, width, height, bytes));
+            residentBytes += bytes;
+            evictToBudget();
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            residentBytes -= removed.bytes;
+            retire(removed);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            retire(entry);
+        }
+        entries.clear();
+        residentBytes = 0L;
+    }
+
+    @Override
+    public void setPinFilter(Predicate<String> pinned) {
+        this.pinned = pinned != null ? pinned : key -> false;
+    }
+
+    @Override
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+        evictToBudget();
+    }
+
+    @Override
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Bytes held by entries currently in the LRU.
+     */
+    @Override
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * All direct memory this tier still owns: resident entries plus evicted ones a render has not released yet.
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public synchronized int getActiveLeases() {
+        return activeLeases;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private ImageFrameSourceHandle lease(Entry entry) {
+        entry.leases++;
+        activeLeases++;
+        return new ImageFrameSourceHandle(entry.view(), () -> release(entry));
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.leases--;
+        activeLeases--;
+        if (entry.retired && entry.leases == 0) {
+            free(entry);
+        }
+    }
+
+    private void evictToBudget() {
+        // Unpinned entries go first, least recently used first; pinned ones only if that was not enough.
+        evictPass(false);
+        evictPass(true);
+    }
+
+    private void evictPass(boolean includePinned) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (residentBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Entry> next = it.next();
+            if (!includePinned && pinned.test(next.getKey())) {
+                continue;
+            }
+            Entry eldest = next.getValue();
+            it.remove();
+            residentBytes -= eldest.bytes;
+            retire(eldest);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void retire(Entry entry) {
+        entry.retired = true;
+        if (entry.leases == 0) {
+            free(entry);
+        }
+    }
+
+    private void free(Entry entry) {
+        if (entry.pixels == null) {
+            return;
+        }
+        allocatedBytes -= entry.bytes;
+        ByteBuffer pixels = entry.pixels;
+        entry.pixels = null;
+        ImageFrameBuffers.free(pixels);
+    }
+
+    private static class Entry {
+        final int width;
+        final int height;
+        final long bytes;
+        ByteBuffer pixels;
+        int leases;
+        boolean retired;
+
+        Entry(ByteBuffer pixels, int width, int height, long bytes) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.bytes = bytes;
+        }
+
+        BufferedImage view() {
+            ColorModel colorModel = ColorModel.getRGBdefault();
+            SampleModel sampleModel = colorModel.createCompatibleSampleModel(width, height);
+            IntBuffer ints = pixels.asReadOnlyBuffer().order(ByteOrder.nativeOrder()).asIntBuffer();
+            WritableRaster raster = Raster.createWritableRaster(sampleModel, new IntBufferDataBuffer(ints), null);
+            return new BufferedImage(colorModel, raster, false, null);
+        }
+    }
+
+    /**
+     * Read-only data buffer over packed ARGB pixels in a direct buffer.
+     */
+    private static final class IntBufferDataBuffer extends DataBuffer {
+        private final IntBuffer ints;
+
+        IntBufferDataBuffer(IntBuffer ints) {
+            super(DataBuffer.TYPE_INT, ints.capacity());
+            this.ints = ints;
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            return ints.get(i);
+        }
+
+        @Override
+        public void setElem(int bank, int i, int val) {
+            throw new UnsupportedOperationException("Cached source pixels are read-only");
+        }
+    }
+}
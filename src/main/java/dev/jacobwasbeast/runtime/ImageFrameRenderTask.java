@@ -0,0 +1,113 @@
+package dev.jacobwasbeast.runtime;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle on one frame render in flight. The render checks in at each stage boundary (source load, scale, each
+ * tile's encode, register) and stops there with a {@link CancellationException} once the handle is cancelled,
+ * dropping whatever it had built. A newer render of the same group cancels the older one, and so does breaking the
+ * frame.
+ */
+public final class ImageFrameRenderTask {
+    public enum Stage {
+        QUEUED,
+        SOURCE,
+        SCALE,
+        ENCODE,
+        REGISTER,
+        DONE
+    }
+
+    private final String groupId;
+    private final String worldName;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile boolean cancelled;
+    private volatile Stage stage = Stage.QUEUED;
+    // Animation frames encode in parallel, so tiles can finish on several threads at once.
+    private final AtomicInteger tilesDone = new AtomicInteger();
+    private volatile int tilesTotal;
+
+    ImageFrameRenderTask(String groupId, String worldName, int minX, int minY, int minZ, int sizeX, int sizeY,
+            int sizeZ) {
+        this.groupId = groupId;
+        this.worldName = worldName;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws if the render was cancelled, otherwise moves it on to {@code next}.
+     */
+    void enter(Stage next) {
+        checkpoint();
+        stage = next;
+    }
+
+    void checkpoint() {
+        if (cancelled) {
+            throw new CancellationException("Render of " + groupId + " was cancelled");
+        }
+    }
+
+    void setTilesTotal(int total) {
+        tilesTotal = total;
+        tilesDone.set(0);
+    }
+
+    void tileDone() {
+        tilesDone.incrementAndGet();
+    }
+
+    void finish() {
+        stage = Stage.DONE;
+    }
+
+    /**
+     * Whether the frame being rendered includes the block at {@code x, y, z}.
+     */
+    public boolean covers(String worldName, int x, int y, int z) {
+        return this.worldName != null && this.worldName.equals(worldName)
+                && x >= minX && x < minX + sizeX
+                && y >= minY && y < minY + sizeY
+                && z >= minZ && z < minZ + sizeZ;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public int getTilesDone() {
+        return tilesDone.get();
+    }
+
+    public int getTilesTotal() {
+        return tilesTotal;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+}
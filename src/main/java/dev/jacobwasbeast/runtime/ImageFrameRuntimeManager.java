@@ -29,12 +29,16 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import javax.imageio.ImageIO;
@@ -62,6 +66,9 @@ public class ImageFrameRuntimeManager {
     private static final String BANNER_MODEL_PATH = "Blocks/ImageFrames/Banner.blockymodel";
     private static final AssetUpdateQuery TILE_UPDATE_QUERY = new AssetUpdateQuery(
             new AssetUpdateQuery.RebuildCache(true, false, false, false, false, false));
+    private static final long AUTO_REFRESH_TICK_SECONDS = 5L;
+    private static final long ANIMATION_TICK_MILLIS = 50L;
+    private static final String FRAME_SUFFIX = "_f";
 
     private final ImageFramesPlugin plugin;
     private final ImageFrameStore store;
@@ -74,7 +81,22 @@ public class ImageFrameRuntimeManager {
     private volatile BufferedImage bannerCustomTextureCache;
     private volatile Double bannerMaskAspectCache;
     private final ImageFrameImageCache imageCache;
+    private final ImageFrameCanvasCache canvasCache;
+    private final ImageFrameDownloader downloader = new ImageFrameDownloader(8, 2);
+    private final ImageFrameSources sources = new ImageFrameSources();
+    private final ImageFrameFileSource fileSource;
+    private final ImageFrameDataSource dataSource;
     private final AtomicBoolean integrityCheckStarted = new AtomicBoolean(false);
+    private final AtomicBoolean cacheSweepStarted = new AtomicBoolean(false);
+    private final AtomicBoolean autoRefreshStarted = new AtomicBoolean(false);
+    private final AtomicBoolean animatorStarted = new AtomicBoolean(false);
+    // Source content hash each group's tiles were last rendered from, by groupId.
+    private final Map<String, String> renderedSourceHashes = new ConcurrentHashMap<>();
+    private final ImageFrameTileHashes tileHashes = new ImageFrameTileHashes();
+    private final Map<String, Long> nextRefreshAt = new ConcurrentHashMap<>();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<String, ImageFrameRenderTask> activeRenders = new ConcurrentHashMap<>();
+    private final Map<String, AnimationState> animations = new ConcurrentHashMap<>();
 
     public ImageFrameRuntimeManager(ImageFramesPlugin plugin, ImageFrameStore store) {
         this.plugin = plugin;
@@ -84,9 +106,49 @@ public class ImageFrameRuntimeManager {
         this.runtimeCommonBlocksPath = runtimeAssetsPath.resolve("Common/Blocks/ImageFrames/tiles");
         this.runtimeBlockTypesPath = runtimeAssetsPath.resolve(RUNTIME_BLOCKS_DIR);
         this.imageCache = new ImageFrameImageCache(java.nio.file.Path.of("ImageFrames"));
+        store.setUrlReferenceListener(imageCache);
+        imageCache.setMipExecutor(downloader.executor());
+        this.canvasCache = new ImageFrameCanvasCache(java.nio.file.Path.of("ImageFrames", "canvas"), 0L, 0L);
+        canvasCache.setWriteExecutor(downloader.executor());
+        ImageFrameHttpSource httpSource = new ImageFrameHttpSource(downloader, imageCache);
+        sources.register("http", httpSource);
+        sources.register("https", httpSource);
+        this.fileSource = new ImageFrameFileSource(imageCache.getDecoder());
+        fileSource.protect(imageCache.getCacheDir());
+        fileSource.protect(canvasCache.getDirectory());
+        sources.register("file", fileSource);
+        this.dataSource = new ImageFrameDataSource(imageCache.getDecoder());
+        sources.register("data", dataSource);
     }
 
     public void init() {
+        switch (plugin.getConfig().getMemoryCacheTier()) {
+            case "offheap" -> imageCache.setMemoryTier(new ImageFrameOffHeapCache(0L));
+            case "compressed" -> imageCache.setMemoryTier(new ImageFrameCompressedCache(0L, imageCache.getDecoder()));
+            default -> {
+            }
+        }
+        imageCache.setMemoryCacheMaxBytes(plugin.getConfig().getMemoryCacheMaxMb() * 1024L * 1024L);
+        imageCache.setDiskCacheMaxBytes(plugin.getConfig().getDiskCacheMaxMb() * 1024L * 1024L);
+        imageCache.setRevalidateAfterMillis(plugin.getConfig().getSourceRevalidateMinutes() * 60_000L);
+        canvasCache.setMemoryMaxBytes(plugin.getConfig().getCanvasCacheMaxMb() * 1024L * 1024L);
+        canvasCache.setDiskMaxBytes(plugin.getConfig().getCanvasDiskCacheMaxMb() * 1024L * 1024L);
+        downloader.setLimits(plugin.getConfig().getDownloadMaxConcurrent(), plugin.getConfig().getDownloadMaxPerHost());
+        long maxSourceBytes = plugin.getConfig().getDownloadMaxMb() * 1024L * 1024L;
+        downloader.setMaxBytes(maxSourceBytes);
+        downloader.setRetryPolicy(plugin.getConfig().getDownloadRetries(), plugin.getConfig().getDownloadBackoffMs());
+        downloader.setCircuitBreaker(plugin.getConfig().getHostFailureThreshold(),
+                plugin.getConfig().getHostCooldownSeconds() * 1000L);
+        downloader.setHostRateLimit(plugin.getConfig().getHostMaxRequestsPerSecond());
+        imageCache.getDecoder().setMaxBytes(maxSourceBytes);
+        imageCache.getDecoder().setMaxPixels(plugin.getConfig().getDecodeMaxMegapixels() * 1_000_000L);
+        String fileSourceDir = plugin.getConfig().getFileSourceDir();
+        try {
+            fileSource.setRoot(fileSourceDir.isEmpty() ? null : Path.of(fileSourceDir));
+        } catch (IOException | java.nio.file.InvalidPathException e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Disabled file: images");
+        }
+        dataSource.setMaxUrlLength(plugin.getConfig().getDataUrlMaxKb() * 1024);
         try {
             Files.createDirectories(runtimeCommonBlocksPath);
             Files.createDirectories(runtimeBlockTypesPath);
@@ -98,6 +160,9 @@ public class ImageFrameRuntimeManager {
         } catch (Exception e) {
             plugin.getLogger().at(Level.SEVERE).withCause(e).log("Failed to initialize ImageFrames runtime assets");
         }
+        startCacheSweeper(plugin.getConfig().getCacheSweepIntervalSeconds());
+        startAutoRefresh();
+        startAnimator();
     }
 
     public void startIntegrityChecks(long intervalSeconds) {
@@ -111,6 +176,256 @@ public class ImageFrameRuntimeManager {
                 java.util.concurrent.TimeUnit.SECONDS);
     }
 
+    public void startCacheSweeper(long intervalSeconds) {
+        if (intervalSeconds <= 0 || !cacheSweepStarted.compareAndSet(false, true)) {
+            return;
+        }
+        com.hypixel.hytale.server.core.HytaleServer.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(
+                this::sweepImageCache,
+                intervalSeconds,
+                intervalSeconds,
+                java.util.concurrent.TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts the tick that refreshes frames with an auto-refresh interval.
+     */
+    public void startAutoRefresh() {
+        if (!autoRefreshStarted.compareAndSet(false, true)) {
+            return;
+        }
+        com.hypixel.hytale.server.core.HytaleServer.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(
+                this::refreshDueGroups,
+                AUTO_REFRESH_TICK_SECONDS,
+                AUTO_REFRESH_TICK_SECONDS,
+                java.util.concurrent.TimeUnit.SECONDS);
+    }
+
+    private void refreshDueGroups() {
+        try {
+            Map<String, FrameGroup> groups = store.getGroupsSnapshot();
+            nextRefreshAt.keySet().retainAll(groups.keySet());
+            renderedSourceHashes.keySet().retainAll(groups.keySet());
+            long now = System.currentTimeMillis();
+            int minSeconds = plugin.getConfig().getAutoRefreshMinSeconds();
+            for (FrameGroup group : groups.values()) {
+                if (group == null || group.refreshSeconds <= 0 || group.url == null || group.url.isEmpty()) {
+                    continue;
+                }
+                long interval = Math.max(group.refreshSeconds, minSeconds) * 1000L;
+                Long due = nextRefreshAt.putIfAbsent(group.groupId, now + interval);
+                if (due == null || now < due || !refreshing.add(group.groupId)) {
+                    continue;
+                }
+                nextRefreshAt.put(group.groupId, now + interval);
+                try {
+                    downloader.executor().execute(() -> refreshGroup(group));
+                } catch (RuntimeException e) {
+                    refreshing.remove(group.groupId);
+                }
+            }
+        } catch (Exception e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to schedule ImageFrames refreshes");
+        }
+    }
+
+    /**
+     * Asks the origin whether the source of {@code group} changed, with a conditional request. Nothing is rendered
+     * unless it now resolves to different content; then the tiles are rebuilt under the same safeId, and only tiles
+     * whose pixels changed are re-encoded and pushed to clients.
+     */
+    private void refreshGroup(FrameGroup group) {
+        try {
+            ImageFrameSource source = sources.resolve(group.url);
+            if (source.getCachePolicy() == ImageFrameSource.CachePolicy.DISK) {
+                String hash = imageCache.revalidateNow(group.url, previous -> fetchSource(source, group.url,
+                        previous));
+                if (hash == null || hash.equals(renderedSourceHashes.get(group.groupId))) {
+                    return;
+                }
+            }
+            // Uncached sources have nothing to compare against; the rebuild only pushes tiles whose pixels changed.
+            if (store.getGroup(group.groupId) != group) {
+                return;
+            }
+            // A refresh never supersedes a render someone asked for; it waits for the next interval instead.
+            ImageFrameRenderTask task = untrackedRender(group);
+            if (activeRenders.putIfAbsent(group.groupId, task) != null) {
+                return;
+            }
+            try {
+                GroupInfo info = new GroupInfo(group.worldName, group.minX, group.minY, group.minZ,
+                        group.sizeX, group.sizeY, group.sizeZ, java.util.Collections.emptyList(), null, group.blockId);
+                List<Path> blockTypePaths = new ArrayList<>();
+                // Built aside so the animator never sees a half-updated group, then published and saved.
+                FrameGroup refreshed = group.copy();
+                List<String> changedTileKeys = rebuildGroupAssets(task, info, refreshed, blockTypePaths);
+                task.checkpoint();
+                if (!store.replaceGroup(group, refreshed)) {
+                    return;
+                }
+                if (!blockTypePaths.isEmpty()) {
+                    loadBlockTypeAssets(blockTypePaths);
+                }
+                broadcastTileBlockTypes(changedTileKeys);
+                plugin.getLogger().at(Level.FINE).log("Refreshed ImageFrame %s: %d of %d tiles changed",
+                        group.groupId, changedTileKeys.size(), refreshed.tileBlocks.size());
+            } finally {
+                endRender(task);
+            }
+        } catch (CancellationException e) {
+            // Superseded by a new image or the frame was broken.
+        } catch (Exception e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to refresh ImageFrame %s", group.groupId);
+        } finally {
+            refreshing.remove(group.groupId);
+        }
+    }
+
+    /**
+     * Starts the tick that steps placed animated frames through their frames.
+     */
+    public void startAnimator() {
+        if (!animatorStarted.compareAndSet(false, true)) {
+            return;
+        }
+        com.hypixel.hytale.server.core.HytaleServer.SCHEDULED_EXECUTOR.scheduleWithFixedDelay(
+                this::animateDueGroups,
+                ANIMATION_TICK_MILLIS,
+                ANIMATION_TICK_MILLIS,
+                java.util.concurrent.TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Moves each animated group whose frame is up on to its next frame, most overdue first. At most
+     * {@code animationSwapBudget} blocks are swapped per tick; groups that do not fit wait for the next one, so many
+     * animated walls slow down instead of stalling the world thread. Each group is swapped whole in one world task.
+     */
+    private void animateDueGroups() {
+        try {
+            Map<String, FrameGroup> groups = store.getAnimatedGroupsSnapshot();
+            animations.keySet().retainAll(groups.keySet());
+            long now = System.currentTimeMillis();
+            int minFrameMillis = plugin.getConfig().getAnimationMinFrameMillis();
+            List<AnimationState> due = new ArrayList<>();
+            for (FrameGroup group : groups.values()) {
+                if (group == null || group.animationFrames < 2 || group.tileBlocks == null
+                        || group.tileBlocks.isEmpty()) {
+                    continue;
+                }
+                AnimationState state = animations.get(group.groupId);
+                if (state == null || state.group != group) {
+                    // Placed tiles show frame 0 until the first swap.
+                    animations.put(group.groupId,
+                            new AnimationState(group, now + frameDelayMillis(group, 0, minFrameMillis)));
+                } else if (now >= state.nextAt) {
+                    due.add(state);
+                }
+            }
+            due.sort(Comparator.comparingLong(state -> state.nextAt));
+            int budget = plugin.getConfig().getAnimationSwapBudget();
+            int spent = 0;
+            for (AnimationState state : due) {
+                FrameGroup group = state.group;
+                int blocks = group.tileBlocks.size();
+                // A group larger than the whole budget still gets a tick to itself.
+                if (spent > 0 && spent + blocks > budget) {
+                    break;
+                }
+                World world = com.hypixel.hytale.server.core.universe.Universe.get().getWorld(group.worldName);
+                if (world == null) {
+                    continue;
+                }
+                spent += blocks;
+                int frame = (state.frame + 1) % group.animationFrames;
+                state.frame = frame;
+                long delay = frameDelayMillis(group, frame, minFrameMillis);
+                state.nextAt = state.nextAt + delay > now ? state.nextAt + delay : now + delay;
+                world.execute(() -> showAnimationFrame(world, state, frame));
+            }
+        } catch (Exception e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to step ImageFrames animations");
+        }
+    }
+
+    private static long frameDelayMillis(FrameGroup group, int frame, int minFrameMillis) {
+        List<Integer> delays = group.frameDelays;
+        Integer delay = delays != null && frame < delays.size() ? delays.get(frame) : null;
+        return Math.max(minFrameMillis, delay != null ? delay : 0);
+    }
+
+    /**
+     * Swaps every placed tile of the group to {@code frame}. Tiles that were broken or replaced, sit in unloaded
+     * chunks, or whose frame block type is not loaded yet are left alone.
+     */
+    private void showAnimationFrame(World world, AnimationState state, int frame) {
+        FrameGroup group = state.group;
+        if (store.getGroup(group.groupId) != group || group.tileBlocks == null) {
+            return;
+        }
+        boolean isPanel = isPanelLikeBlockId(group.blockId);
+        for (Map.Entry<String, String> entry : group.tileBlocks.entrySet()) {
+            Vector3i pos = parsePosKey(group.worldName, entry.getKey());
+            String baseKey = entry.getValue();
+            if (pos == null || baseKey == null) {
+                continue;
+            }
+            String key = frame == 0 ? baseKey : baseKey + FRAME_SUFFIX + frame;
+            try {
+                int blockId = BlockType.getAssetMap().getIndex(key);
+                BlockType blockType = BlockType.getAssetMap().getAsset(blockId);
+                if (blockType == null) {
+                    continue;
+                }
+                var chunk = world.getChunk(
+                        com.hypixel.hytale.math.util.ChunkUtil.indexChunkFromBlock(pos.getX(), pos.getZ()));
+                BlockType current = chunk != null ? world.getBlockType(pos) : null;
+                String currentId = current != null ? current.getId() : null;
+                if (currentId == null
+                        || !(currentId.equals(baseKey) || currentId.startsWith(baseKey + FRAME_SUFFIX))) {
+                    continue;
+                }
+                if (isPanel) {
+                    int rotation = state.rotations.computeIfAbsent(pos, p -> readRotation(world, p));
+                    if (rotation >= 0) {
+                        chunk.setBlock(pos.getX(), pos.getY(), pos.getZ(), blockId, blockType, rotation, 0, 0);
+                        continue;
+                    }
+                }
+                world.setBlock(pos.getX(), pos.getY(), pos.getZ(), key);
+            } catch (Exception e) {
+                plugin.getLogger().at(Level.FINE).withCause(e).log("Failed to swap ImageFrame tile at %d,%d,%d",
+                        pos.getX(), pos.getY(), pos.getZ());
+            }
+        }
+    }
+
+    /**
+     * Where an animated group is in its loop. Panel rotations are read once, on the first swap of each tile.
+     */
+    private static final class AnimationState {
+        final FrameGroup group;
+        final Map<Vector3i, Integer> rotations = new HashMap<>();
+        volatile int frame;
+        volatile long nextAt;
+
+        AnimationState(FrameGroup group, long nextAt) {
+            this.group = group;
+            this.nextAt = nextAt;
+            if (group.originalRotations != null) {
+                rotations.putAll(group.originalRotations);
+            }
+        }
+    }
+
+    private void sweepImageCache() {
+        try {
+            imageCache.sweepDisk();
+        } catch (Exception e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to sweep ImageFrames image cache");
+        }
+    }
+
     private void validateGroupsIntegrity() {
         Map<String, FrameGroup> groups = store.getGroupsSnapshot();
         if (groups == null || groups.isEmpty()) {
@@ -159,6 +474,49 @@ public class ImageFrameRuntimeManager {
         }
     }
 
+    public ImageFrameImageCache getImageCache() {
+        return imageCache;
+    }
+
+    public ImageFrameCanvasCache getCanvasCache() {
+        return canvasCache;
+    }
+
+    /**
+     * Executor for work that may download a source image, such as building a group's assets.
+     */
+    public java.util.concurrent.Executor getDownloadExecutor() {
+        return downloader.executor();
+    }
+
+    public ImageFrameDownloader getDownloader() {
+        return downloader;
+    }
+
+    /**
+     * Image sources by URL scheme; other plugins register theirs here.
+     */
+    public ImageFrameSources getSources() {
+        return sources;
+    }
+
+    public void shutdown() {
+        downloader.shutdown();
+    }
+
+    /**
+     * Number of stored frame groups showing each source URL.
+     */
+    public Map<String, Integer> getGroupCountsByUrl() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (FrameGroup group : store.getGroupsSnapshot().values()) {
+            if (group != null && group.url != null && !group.url.isEmpty()) {
+                counts.merge(group.url, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
     public static boolean isFrameBlockId(String blockId) {
         return BASE_BLOCK_ID.equals(blockId)
                 || SLIM_BLOCK_ID.equals(blockId)
@@ -249,11 +607,7 @@ public class ImageFrameRuntimeManager {
                 if (!info.valid) {
                     continue;
                 }
-                for (int ty = 0; ty < info.height; ty++) {
-                    for (int tx = 0; tx < info.width; tx++) {
-                        expectedBaseNames.add(safeId + "_" + tx + "_" + ty);
-                    }
-                }
+                expectedBaseNames.addAll(tileBaseNames(safeId, info, group.animationFrames));
             }
         }
 
@@ -322,23 +676,61 @@ public class ImageFrameRuntimeManager {
         if (groups == null || groups.isEmpty()) {
             return;
         }
-        List<Path> blockTypePaths = new ArrayList<>();
+        // Groups sharing a URL rebuild together, so the source is fetched and decoded once and the rest hit memory.
+        Map<String, List<FrameGroup>> groupsByUrl = new LinkedHashMap<>();
         for (FrameGroup group : groups.values()) {
             if (group == null || group.url == null || group.url.isEmpty()) {
                 continue;
             }
-            try {
-                GroupInfo info = new GroupInfo(group.worldName, group.minX, group.minY, group.minZ,
-                        group.sizeX, group.sizeY, group.sizeZ, java.util.Collections.emptyList(), null, group.blockId);
-                BufferedImage source = loadSourceImage(group.url);
-                rebuildGroupAssetsFromSource(info, group, source, blockTypePaths);
-                store.putGroup(group);
-            } catch (Exception e) {
-                plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to rebuild ImageFrame assets for %s",
-                        group.groupId);
+            groupsByUrl.computeIfAbsent(group.url, key -> new ArrayList<>()).add(group);
+        }
+        // The shared panel and banner models depend only on the tile size and frame style; writing them here leaves
+        // the parallel rebuilds nothing to write but their own tiles.
+        int tileSize = plugin.getConfig().getTileSize();
+        Set<Boolean> panelStyles = new HashSet<>();
+        boolean anyBanner = false;
+        for (List<FrameGroup> urlGroups : groupsByUrl.values()) {
+            for (FrameGroup group : urlGroups) {
+                if (isPanelBlockId(group.blockId) && panelStyles.add(group.hideFrame)) {
+                    ensurePanelModel(tileSize, group.hideFrame);
+                }
+                anyBanner |= isBannerBlockId(group.blockId);
             }
         }
-        loadBlockTypeAssets(blockTypePaths);
+        if (anyBanner) {
+            ensureBannerModel(tileSize);
+        }
+        // Each URL renders as soon as its own source is in, instead of queueing behind every slower download.
+        List<Path> blockTypePaths = Collections.synchronizedList(new ArrayList<>());
+        Semaphore slots = new Semaphore(plugin.getConfig().getStartupRebuildParallelism());
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (List<FrameGroup> urlGroups : groupsByUrl.values()) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                slots.acquireUninterruptibly();
+                try {
+                    for (FrameGroup group : urlGroups) {
+                        rebuildStoredGroup(group, blockTypePaths);
+                    }
+                } finally {
+                    slots.release();
+                }
+            }, downloader.executor()));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        loadBlockTypeAssets(new ArrayList<>(blockTypePaths));
+    }
+
+    private void rebuildStoredGroup(FrameGroup group, List<Path> blockTypePaths) {
+        try {
+            GroupInfo info = new GroupInfo(group.worldName, group.minX, group.minY, group.minZ,
+                    group.sizeX, group.sizeY, group.sizeZ, java.util.Collections.emptyList(), null, group.blockId);
+            FrameGroup rebuilt = group.copy();
+            rebuildGroupAssets(untrackedRender(rebuilt), info, rebuilt, blockTypePaths);
+            store.replaceGroup(group, rebuilt);
+        } catch (Exception e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to rebuild ImageFrame assets for %s",
+                    group.groupId);
+        }
     }
 
     private void ensureCommonAssetsRegistered() {
@@ -457,15 +849,62 @@ public class ImageFrameRuntimeManager {
         return collectGroupInfo(world, target, null);
     }
 
-    public FrameGroup buildGroupAssets(GroupInfo info, String url, String fit, int rot, boolean flipX, boolean flipY,
-            String ownerUuid, String facing, String blockId, boolean hideFrame, boolean collision, double bannerScale,
-            String bannerMode)
-            throws IOException {
-        String groupId = info.worldName + ":" + info.minX + ":" + info.minY + ":" + info.minZ + ":" + info.sizeX + "x"
+    /**
+     * Starts tracking a render of the frame described by {@code info}, cancelling any render of the same frame still
+     * in flight. Pass the handle to {@link #buildGroupAssets} and hand it to {@link #endRender} once done.
+     */
+    public ImageFrameRenderTask beginRender(GroupInfo info) {
+        ImageFrameRenderTask task = new ImageFrameRenderTask(groupIdFor(info), info.worldName, info.minX, info.minY,
+                info.minZ, info.sizeX, info.sizeY, info.sizeZ);
+        ImageFrameRenderTask previous = activeRenders.put(task.getGroupId(), task);
+        if (previous != null) {
+            previous.cancel();
+        }
+        return task;
+    }
+
+    public void endRender(ImageFrameRenderTask task) {
+        task.finish();
+        activeRenders.remove(task.getGroupId(), task);
+    }
+
+    /**
+     * Cancels every render in flight for a frame that includes {@code pos}, stored yet or not.
+     */
+    public void cancelRendersAt(String worldName, Vector3i pos) {
+        for (ImageFrameRenderTask task : activeRenders.values()) {
+            if (task.covers(worldName, pos.getX(), pos.getY(), pos.getZ())) {
+                task.cancel();
+            }
+        }
+    }
+
+    public List<ImageFrameRenderTask> getActiveRenders() {
+        return new ArrayList<>(activeRenders.values());
+    }
+
+    private static String groupIdFor(GroupInfo info) {
+        return info.worldName + ":" + info.minX + ":" + info.minY + ":" + info.minZ + ":" + info.sizeX + "x"
                 + info.sizeY + "x" + info.sizeZ;
+    }
+
+    private static ImageFrameRenderTask untrackedRender(FrameGroup group) {
+        return new ImageFrameRenderTask(group.groupId, group.worldName, group.minX, group.minY, group.minZ,
+                group.sizeX, group.sizeY, group.sizeZ);
+    }
+
+    /**
+     * Renders and registers the tiles for a frame. Throws {@link CancellationException} at the next stage boundary
+     * once {@code task} is cancelled; tile files are only written after every tile has been encoded, so a cancelled
+     * render leaves the frame's files as they were.
+     */
+    public FrameGroup buildGroupAssets(ImageFrameRenderTask task, GroupInfo info, String url, String fit, int rot,
+            boolean flipX, boolean flipY, String ownerUuid, String facing, String blockId, boolean hideFrame,
+            boolean collision, double bannerScale, String bannerMode, ImageFrameSourceRegion sourceRegion,
+            int refreshSeconds) throws IOException {
+        String groupId = groupIdFor(info);
         String fileGroupId = buildSafeGroupId(url, info, facing, rot);
 
-        BufferedImage source = loadSourceImage(url);
         int tileSize = plugin.getConfig().getTileSize();
         boolean isBanner = isBannerBlockId(blockId);
         int tileHeight = tileSize;
@@ -476,33 +915,6 @@ public class ImageFrameRuntimeManager {
         // Apply fit modes directly to target dimensions (not square first)
         int targetW = info.width * tileSize;
         int targetH = info.height * tileHeight;
-        BufferedImage processed = scaleImage(source, targetW, targetH, fit);
-        if (rot != 0) {
-            processed = rotate(processed, rot);
-        }
-        processed = applyFlips(processed, flipX, flipY);
-        // Ensure exact target size - fit modes should handle this, but pad/crop if needed
-        if (processed.getWidth() != targetW || processed.getHeight() != targetH) {
-            BufferedImage finalImage = new BufferedImage(targetW, targetH, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g = finalImage.createGraphics();
-            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            // Center the image
-            int x = Math.max(0, (targetW - processed.getWidth()) / 2);
-            int y = Math.max(0, (targetH - processed.getHeight()) / 2);
-            g.drawImage(processed, x, y, null);
-            g.dispose();
-            processed = finalImage;
-        }
-        // For slim frames, don't apply frame underlay - the model handles it separately with multi-texture
-        // For panels, build a texture atlas (frame on left, image on right)
-        if (!SLIM_BLOCK_ID.equals(blockId)) {
-            if (!isPanelLikeBlockId(blockId)) {
-                // Regular frames: apply frame underlay based on hideFrame
-                processed = applyFrameUnderlay(processed, hideFrame);
-            }
-        }
 
         List<Path> blockTypePaths = new ArrayList<>();
         FrameGroup group = new FrameGroup(groupId);
@@ -515,6 +927,10 @@ public class ImageFrameRuntimeManager {
         group.sizeY = info.sizeY;
         group.sizeZ = info.sizeZ;
         group.url = url;
+        group.cropX = sourceRegion.x;
+        group.cropY = sourceRegion.y;
+        group.cropWidth = sourceRegion.width;
+        group.cropHeight = sourceRegion.height;
         group.fit = fit;
         group.rot = rot;
         group.flipX = flipX;
@@ -526,6 +942,7 @@ public class ImageFrameRuntimeManager {
         group.collision = collision;
         group.bannerScale = bannerScale > 0 ? bannerScale : 1.0;
         group.bannerMode = bannerMode != null ? bannerMode : "texture";
+        group.refreshSeconds = Math.max(0, refreshSeconds);
         group.normalAxis = info.normalAxis != null ? info.normalAxis.name() : null;
         group.tileBlocks.clear();
         String panelModelPath = null;
@@ -539,76 +956,55 @@ public class ImageFrameRuntimeManager {
             bannerModelPath = ensureBannerModel(tileSize);
         }
         List<CommonAsset> assetsToRegister = new ArrayList<>();
+        List<PendingTile> pending = new ArrayList<>();
+        ImageFrameDecoder.Animation animation = loadAnimation(task, url, sourceRegion, targetW, targetH);
+        BufferedImage processed = animation != null
+                ? animationCanvas(animation, 0, group, sourceRegion, targetW, targetH)
+                : renderCanvas(task, url, sourceRegion, targetW, targetH, fit, rot, flipX, flipY, blockId, hideFrame);
+        String sourceHash = imageCache.getContentHash(url);
+        task.enter(ImageFrameRenderTask.Stage.ENCODE);
+        task.setTilesTotal(info.width * info.height * (animation != null ? animation.frames.size() : 1));
 
         for (int ty = 0; ty < info.height; ty++) {
             for (int tx = 0; tx < info.width; tx++) {
-                int px = tx * tileSize;
-                int py = ty * tileHeight;
-                // Ensure we don't go out of bounds
-                int availableW = Math.min(tileSize, processed.getWidth() - px);
-                int availableH = Math.min(tileHeight, processed.getHeight() - py);
-                BufferedImage tile;
-                if (availableW == tileSize && availableH == tileHeight) {
-                    tile = processed.getSubimage(px, py, tileSize, tileHeight);
-                } else {
-                    // Pad to square if needed
-                    tile = new BufferedImage(tileSize, tileHeight, BufferedImage.TYPE_INT_ARGB);
-                    Graphics2D gTile = tile.createGraphics();
-                    gTile.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                    gTile.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                    BufferedImage subTile = processed.getSubimage(px, py, availableW, availableH);
-                    gTile.drawImage(subTile, 0, 0, null);
-                    gTile.dispose();
-                }
-                // For panels, build texture atlas (frame on left, image on right)
-                if (isPanelBlockId(blockId)) {
-                    boolean includeFrame = !hideFrame;
-                    plugin.getLogger().at(Level.FINE).log("Building panel atlas for tile %d,%d with includeFrame=%b (hideFrame=%b)", tx, ty, includeFrame, hideFrame);
-                    tile = buildPanelAtlas(tile, includeFrame);
-                } else if (isBannerBlockId(blockId)) {
-                    boolean includeFrame = !hideFrame;
-                    tile = buildBannerAtlas(tile, includeFrame, bannerScale, fit, bannerMode);
-                }
-
+                task.checkpoint();
+                BufferedImage tile = sliceTile(processed, tx, ty, tileSize, tileHeight, group);
                 String tileBaseName = fileGroupId + "_" + tx + "_" + ty;
-                String tileKey = TILE_PREFIX + tileBaseName;
                 String assetPath = TILE_TEXTURE_DIR + tileBaseName + ".png";
-                Path filePath = runtimeCommonBlocksPath.resolve(tileBaseName + ".png");
-                byte[] pngBytes = encodePng(tile);
-                boolean pngChanged = writeBytesIfChanged(filePath, pngBytes);
-                boolean hasAsset = CommonAssetRegistry.hasCommonAsset(assetPath);
-                if (pngChanged || !hasAsset) {
-                    assetsToRegister.add(new FileCommonAsset(filePath, assetPath, pngBytes));
-                }
-                Path jsonPath = runtimeBlockTypesPath.resolve(tileKey + ".json");
                 // Bottom-left tile is at tx=0, ty=0
                 boolean isBottomLeft = (tx == 0 && ty == 0);
-                boolean jsonChanged = writeStringIfChanged(jsonPath,
+                pending.add(pendingTile(tileBaseName, tile, false,
                         buildTileBlockTypeJson(assetPath, info.normalAxis, facing, group.blockId, group.hideFrame,
-                                panelModelPath, bannerModelPath, tileSize, group.collision, isBottomLeft));
-                if (jsonChanged || BlockType.getAssetMap().getAsset(tileKey) == null) {
-                    blockTypePaths.add(jsonPath);
-                }
+                                panelModelPath, bannerModelPath, tileSize, group.collision, isBottomLeft)));
+                task.tileDone();
 
                 Vector3i pos = info.toWorldPos(tx, ty, facing);
                 group.tileBlocks.put(
                         ImageFrameStore.toPosKey(info.worldName, pos.getX(), pos.getY(), pos.getZ()),
-                        tileKey);
+                        TILE_PREFIX + tileBaseName);
             }
         }
+        pending.addAll(renderAnimationTiles(task, animation, group, info, sourceRegion, targetW, targetH, tileSize,
+                tileHeight, info.normalAxis, panelModelPath, bannerModelPath, false));
+        task.enter(ImageFrameRenderTask.Stage.REGISTER);
+        writePendingTiles(pending, assetsToRegister, blockTypePaths, null);
         if (!assetsToRegister.isEmpty()) {
             CommonAssetUtil.addCommonAssetsSilentBatch(RUNTIME_ASSETS_PACK, assetsToRegister, false);
         }
         loadBlockTypeAssets(blockTypePaths);
+        if (sourceHash != null) {
+            renderedSourceHashes.put(groupId, sourceHash);
+        }
+        nextRefreshAt.remove(groupId);
         return group;
     }
 
-    private void rebuildGroupAssetsFromSource(GroupInfo info, FrameGroup group, BufferedImage source,
-            List<Path> blockTypePaths)
-            throws IOException {
-        if (source == null) {
-            throw new IOException("Missing image source");
-        }
+    /**
+     * Renders {@code group} again under its existing safeId and returns the keys of the tiles whose texture changed.
+     * Tiles whose pixels match what was last written are not re-encoded.
+     */
+    private List<String> rebuildGroupAssets(ImageFrameRenderTask task, GroupInfo info, FrameGroup group,
+            List<Path> blockTypePaths) throws IOException {
         String safeId = (group.safeId != null && !group.safeId.isEmpty())
                 ? group.safeId
                 : sanitizeFilename(group.groupId);
@@ -640,35 +1036,12 @@ public class ImageFrameRuntimeManager {
         // Apply fit modes directly to target dimensions (not square first)
         int targetW = info.width * tileSize;
         int targetH = info.height * tileHeight;
-        BufferedImage processed = scaleImage(source, targetW, targetH, fit);
-        if (group.rot != 0) {
-            processed = rotate(processed, group.rot);
-        }
-        processed = applyFlips(processed, group.flipX, group.flipY);
-        // Ensure exact target size - fit modes should handle this, but pad/crop if needed
-        if (processed.getWidth() != targetW || processed.getHeight() != targetH) {
-            BufferedImage finalImage = new BufferedImage(targetW, targetH, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g = finalImage.createGraphics();
-            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            // Center the image
-            int x = Math.max(0, (targetW - processed.getWidth()) / 2);
-            int y = Math.max(0, (targetH - processed.getHeight()) / 2);
-            g.drawImage(processed, x, y, null);
-            g.dispose();
-            processed = finalImage;
-        }
-        // For slim frames, don't apply frame underlay - the model handles it separately with multi-texture
-        // For panels, build a texture atlas (frame on left, image on right)
-        if (!SLIM_BLOCK_ID.equals(group.blockId)) {
-            if (!isPanelLikeBlockId(group.blockId)) {
-                // Regular frames: apply frame underlay based on hideFrame
-                processed = applyFrameUnderlay(processed, group.hideFrame);
-            }
-        }
+        ImageFrameSourceRegion sourceRegion = ImageFrameSourceRegion.of(group.cropX, group.cropY, group.cropWidth,
+                group.cropHeight);
 
-        group.tileBlocks.clear();
+        // Filled aside and swapped in, so a refresh never shows other threads a half-built map.
+        Map<String, String> tileBlocks = new HashMap<>();
+        List<String> changedTileKeys = new ArrayList<>();
         String panelModelPath = null;
         if (isPanelBlockId(group.blockId)) {
             panelModelPath = ensurePanelModel(tileSize, group.hideFrame);
@@ -678,75 +1051,389 @@ public class ImageFrameRuntimeManager {
             bannerModelPath = ensureBannerModel(tileSize);
         }
         List<CommonAsset> assetsToRegister = new ArrayList<>();
+        List<PendingTile> pending = new ArrayList<>();
+        Axis axis = forcedAxis != null ? forcedAxis : info.normalAxis;
+        ImageFrameDecoder.Animation animation = loadAnimation(task, group.url, sourceRegion, targetW, targetH);
+        BufferedImage processed = animation != null
+                ? animationCanvas(animation, 0, group, sourceRegion, targetW, targetH)
+                : renderCanvas(task, group.url, sourceRegion, targetW, targetH, fit, group.rot, group.flipX,
+                        group.flipY, group.blockId, group.hideFrame);
+        String sourceHash = imageCache.getContentHash(group.url);
+        task.enter(ImageFrameRenderTask.Stage.ENCODE);
+        task.setTilesTotal(info.width * info.height * (animation != null ? animation.frames.size() : 1));
         for (int ty = 0; ty < info.height; ty++) {
             for (int tx = 0; tx < info.width; tx++) {
-                int px = tx * tileSize;
-                int py = ty * tileHeight;
-                // Ensure we don't go out of bounds
-                int availableW = Math.min(tileSize, processed.getWidth() - px);
-                int availableH = Math.min(tileHeight, processed.getHeight() - py);
-                BufferedImage tile;
-                if (availableW == tileSize && availableH == tileHeight) {
-                    tile = processed.getSubimage(px, py, tileSize, tileHeight);
-                } else {
-                    // Pad to square if needed
-                    tile = new BufferedImage(tileSize, tileHeight, BufferedImage.TYPE_INT_ARGB);
-                    Graphics2D gTile = tile.createGraphics();
-                    gTile.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-                    gTile.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                    BufferedImage subTile = processed.getSubimage(px, py, availableW, availableH);
-                    gTile.drawImage(subTile, 0, 0, null);
-                    gTile.dispose();
-                }
-                // For panels, build texture atlas (frame on left, image on right)
-                if (isPanelBlockId(group.blockId)) {
-                    boolean includeFrame = !group.hideFrame;
-                    tile = buildPanelAtlas(tile, includeFrame);
-                } else if (isBannerBlockId(group.blockId)) {
-                    boolean includeFrame = !group.hideFrame;
-                    tile = buildBannerAtlas(tile, includeFrame, group.bannerScale > 0 ? group.bannerScale : 1.0,
-                            fit, group.bannerMode != null ? group.bannerMode : "texture");
-                }
-
+                task.checkpoint();
+                BufferedImage tile = sliceTile(processed, tx, ty, tileSize, tileHeight, group);
                 String tileBaseName = safeId + "_" + tx + "_" + ty;
-                String tileKey = TILE_PREFIX + tileBaseName;
                 String assetPath = TILE_TEXTURE_DIR + tileBaseName + ".png";
-                Path filePath = runtimeCommonBlocksPath.resolve(tileBaseName + ".png");
-                byte[] pngBytes = encodePng(tile);
-                boolean pngChanged = writeBytesIfChanged(filePath, pngBytes);
-                boolean hasAsset = CommonAssetRegistry.hasCommonAsset(assetPath);
-                if (pngChanged || !hasAsset) {
-                    assetsToRegister.add(new FileCommonAsset(filePath, assetPath, pngBytes));
-                }
-                Path jsonPath = runtimeBlockTypesPath.resolve(tileKey + ".json");
                 // Bottom-left tile is at tx=0, ty=0
                 boolean isBottomLeft = (tx == 0 && ty == 0);
-                boolean jsonChanged = writeStringIfChanged(jsonPath,
-                        buildTileBlockTypeJson(assetPath, forcedAxis != null ? forcedAxis : info.normalAxis,
-                                facing, group.blockId, group.hideFrame,
-                                panelModelPath, bannerModelPath, tileSize, group.collision, isBottomLeft));
-                if (jsonChanged || BlockType.getAssetMap().getAsset(tileKey) == null) {
-                    blockTypePaths.add(jsonPath);
-                }
+                pending.add(pendingTile(tileBaseName, tile, true,
+                        buildTileBlockTypeJson(assetPath, axis, facing, group.blockId, group.hideFrame,
+                                panelModelPath, bannerModelPath, tileSize, group.collision, isBottomLeft)));
+                task.tileDone();
                 Vector3i pos = info.toWorldPos(tx, ty, facing);
-                group.tileBlocks.put(ImageFrameStore.toPosKey(info.worldName, pos.getX(), pos.getY(), pos.getZ()),
-                        tileKey);
+                tileBlocks.put(ImageFrameStore.toPosKey(info.worldName, pos.getX(), pos.getY(), pos.getZ()),
+                        TILE_PREFIX + tileBaseName);
+            }
+        }
+        int previousFrames = group.animationFrames;
+        pending.addAll(renderAnimationTiles(task, animation, group, info, sourceRegion, targetW, targetH, tileSize,
+                tileHeight, axis, panelModelPath, bannerModelPath, true));
+        task.enter(ImageFrameRenderTask.Stage.REGISTER);
+        writePendingTiles(pending, assetsToRegister, blockTypePaths, changedTileKeys);
+        group.tileBlocks = tileBlocks;
+        if (previousFrames > Math.max(1, group.animationFrames)) {
+            // The source now has fewer frames; drop the ones past its end.
+            List<String> staleFrames = new ArrayList<>();
+            for (String baseName : tileBaseNames(safeId, info, previousFrames)) {
+                int frame = frameOf(baseName);
+                if (frame >= Math.max(1, group.animationFrames)) {
+                    staleFrames.add(baseName);
+                }
             }
+            removeTileAssets(staleFrames);
         }
         if (!assetsToRegister.isEmpty()) {
             CommonAssetUtil.addCommonAssetsSilentBatch(RUNTIME_ASSETS_PACK, assetsToRegister, false);
         }
+        if (sourceHash != null) {
+            renderedSourceHashes.put(group.groupId, sourceHash);
+        }
+        return changedTileKeys;
+    }
+
+    /**
+     * Writes the encoded tiles and their block type JSON, collecting what needs registering. A tile without PNG bytes
+     * matched what was already written and only has its JSON checked.
+     */
+    private void writePendingTiles(List<PendingTile> pending, List<CommonAsset> assetsToRegister,
+            List<Path> blockTypePaths, List<String> changedTileKeys) throws IOException {
+        for (PendingTile tile : pending) {
+            if (tile.pngBytes != null) {
+                Path filePath = runtimeCommonBlocksPath.resolve(tile.baseName + ".png");
+                boolean pngChanged = writeBytesIfChanged(filePath, tile.pngBytes);
+                if (pngChanged || !CommonAssetRegistry.hasCommonAsset(tile.assetPath)) {
+                    assetsToRegister.add(new FileCommonAsset(filePath, tile.assetPath, tile.pngBytes));
+                    if (changedTileKeys != null) {
+                        changedTileKeys.add(tile.tileKey);
+                    }
+                }
+                tileHashes.record(tile.baseName, tile.pixelHash);
+            }
+            Path jsonPath = runtimeBlockTypesPath.resolve(tile.tileKey + ".json");
+            boolean jsonChanged = writeStringIfChanged(jsonPath, tile.blockTypeJson);
+            if (jsonChanged || BlockType.getAssetMap().getAsset(tile.tileKey) == null) {
+                blockTypePaths.add(jsonPath);
+            }
+        }
+    }
+
+    private record PendingTile(String baseName, String tileKey, String assetPath, byte[] pngBytes, long pixelHash,
+            String blockTypeJson) {
     }
 
-    private BufferedImage loadSourceImage(String url) throws IOException {
+    /**
+     * Encodes {@code tile} as {@code baseName}. With {@code skipUnchanged}, a tile whose pixels match what was last
+     * written (and whose texture is still registered) is not re-encoded.
+     */
+    private PendingTile pendingTile(String baseName, BufferedImage tile, boolean skipUnchanged, String blockTypeJson)
+            throws IOException {
+        String assetPath = TILE_TEXTURE_DIR + baseName + ".png";
+        long pixelHash = ImageFrameTileHashes.pixelHash(tile);
+        boolean unchanged = skipUnchanged && tileHashes.matches(baseName, pixelHash)
+                && CommonAssetRegistry.hasCommonAsset(assetPath)
+                && Files.exists(runtimeCommonBlocksPath.resolve(baseName + ".png"));
+        return new PendingTile(baseName, TILE_PREFIX + baseName, assetPath, unchanged ? null : encodePng(tile),
+                pixelHash, blockTypeJson);
+    }
+
+    /**
+     * Cuts tile {@code tx, ty} out of a rendered canvas, padding edge tiles, and builds the panel or banner atlas the
+     * group's block needs.
+     */
+    private BufferedImage sliceTile(BufferedImage processed, int tx, int ty, int tileSize, int tileHeight,
+            FrameGroup group) {
+        int px = tx * tileSize;
+        int py = ty * tileHeight;
+        // Ensure we don't go out of bounds
+        int availableW = Math.min(tileSize, processed.getWidth() - px);
+        int availableH = Math.min(tileHeight, processed.getHeight() - py);
+        BufferedImage tile;
+        if (availableW == tileSize && availableH == tileHeight) {
+            tile = processed.getSubimage(px, py, tileSize, tileHeight);
+        } else {
+            // Pad to square if needed
+            tile = new BufferedImage(tileSize, tileHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D gTile = tile.createGraphics();
+            gTile.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            gTile.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            BufferedImage subTile = processed.getSubimage(px, py, availableW, availableH);
+            gTile.drawImage(subTile, 0, 0, null);
+            gTile.dispose();
+        }
+        // For panels, build texture atlas (frame on left, image on right)
+        if (isPanelBlockId(group.blockId)) {
+            tile = buildPanelAtlas(tile, !group.hideFrame);
+        } else if (isBannerBlockId(group.blockId)) {
+            tile = buildBannerAtlas(tile, !group.hideFrame, group.bannerScale > 0 ? group.bannerScale : 1.0,
+                    group.fit != null ? group.fit : "stretch",
+                    group.bannerMode != null ? group.bannerMode : "texture");
+        }
+        return tile;
+    }
+
+    /**
+     * Decodes the frames of {@code url} if its cached source is an animated GIF and animation is enabled. Otherwise
+     * returns null and the caller renders a still, so a GIF is never decoded both ways. The cached copy is brought up
+     * to date first, so the check sees the bytes a still render would have loaded.
+     */
+    private ImageFrameDecoder.Animation loadAnimation(ImageFrameRenderTask task, String url,
+            ImageFrameSourceRegion region, int targetW, int targetH) throws IOException {
+        int maxFrames = plugin.getConfig().getAnimationMaxFrames();
+        ImageFrameSource source = maxFrames > 1 ? sources.resolve(url) : null;
+        if (source == null || source.getCachePolicy() != ImageFrameSource.CachePolicy.DISK) {
+            return null;
+        }
+        task.enter(ImageFrameRenderTask.Stage.SOURCE);
+        if (imageCache.getContentHash(url) == null || imageCache.needsRevalidation(url)) {
+            imageCache.revalidateNow(url, previous -> fetchSource(source, url, previous));
+        }
+        Path file = imageCache.getSourceFile(url);
+        // Cached files are named by the image reader that recognized them.
+        if (file == null || !file.getFileName().toString().endsWith(".gif")) {
+            return null;
+        }
+        java.awt.Dimension size = imageCache.getSourceSize(url);
+        int decodeW = region.scaleTargetWidth(targetW, size != null ? size.width : 0);
+        int decodeH = region.scaleTargetHeight(targetH, size != null ? size.height : 0);
         try {
-            return imageCache.loadOrDownload(url, () -> {
+            ImageFrameDecoder.Animation animation = imageCache.getDecoder().decodeAnimation(file, decodeW, decodeH,
+                    maxFrames);
+            return animation != null && animation.frames.size() > 1 ? animation : null;
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().at(Level.WARNING).withCause(e).log("Failed to decode frames of %s; showing the first",
+                    url);
+            return null;
+        }
+    }
+
+    /**
+     * Renders frames 1 and up of {@code animation} into "_f<n>" variants of every tile, each frame in its own task on
+     * the download executor, and records the frame count and delays on {@code group}. Frame 0 is the regular tile
+     * set, rendered by the caller through {@link #animationCanvas}. Without an animation the group is reset to a still
+     * image and nothing is added.
+     */
+    private List<PendingTile> renderAnimationTiles(ImageFrameRenderTask task, ImageFrameDecoder.Animation animation,
+            FrameGroup group, GroupInfo info, ImageFrameSourceRegion region, int targetW, int targetH, int tileSize,
+            int tileHeight, Axis axis, String panelModelPath, String bannerModelPath, boolean skipUnchanged)
+            throws IOException {
+        if (animation == null || animation.frames.size() < 2) {
+            group.animationFrames = 0;
+            group.frameDelays = null;
+            return List.of();
+        }
+        String facing = group.facing != null ? group.facing : "North";
+        List<CompletableFuture<List<PendingTile>>> frames = new ArrayList<>();
+        for (int frame = 1; frame < animation.frames.size(); frame++) {
+            int index = frame;
+            String suffix = FRAME_SUFFIX + frame;
+            frames.add(CompletableFuture.supplyAsync(() -> {
+                task.checkpoint();
+                List<PendingTile> tiles = new ArrayList<>();
                 try {
-                    return downloadImage(url);
+                    BufferedImage canvas = animationCanvas(animation, index, group, region, targetW, targetH);
+                    for (int ty = 0; ty < info.height; ty++) {
+                        for (int tx = 0; tx < info.width; tx++) {
+                            task.checkpoint();
+                            String baseName = group.safeId + "_" + tx + "_" + ty + suffix;
+                            tiles.add(pendingTile(baseName, sliceTile(canvas, tx, ty, tileSize, tileHeight, group),
+                                    skipUnchanged, buildTileBlockTypeJson(TILE_TEXTURE_DIR + baseName + ".png", axis,
+                                            facing, group.blockId, group.hideFrame, panelModelPath, bannerModelPath,
+                                            tileSize, group.collision, tx == 0 && ty == 0)));
+                            task.tileDone();
+                        }
+                    }
                 } catch (IOException e) {
-                    return null;
+                    throw new java.io.UncheckedIOException(e);
                 }
-            });
+                return tiles;
+            }, downloader.executor()));
+        }
+        List<PendingTile> pending = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<PendingTile>> frame : frames) {
+                pending.addAll(frame.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof java.io.UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+        group.animationFrames = animation.frames.size();
+        group.frameDelays = new ArrayList<>(animation.delaysMillis);
+        return pending;
+    }
+
+    /**
+     * Renders frame {@code index} of {@code animation} the way {@link #renderCanvas} renders a still. Every frame,
+     * the first included, goes through here so they all share the composited screen size and region math.
+     */
+    private BufferedImage animationCanvas(ImageFrameDecoder.Animation animation, int index, FrameGroup group,
+            ImageFrameSourceRegion region, int targetW, int targetH) throws IOException {
+        BufferedImage scaled = scaleImage(region.apply(animation.frames.get(index), animation.sourceWidth,
+                animation.sourceHeight), targetW, targetH, group.fit != null ? group.fit : "stretch");
+        return finishCanvas(scaled, targetW, targetH, group.rot, group.flipX, group.flipY, group.blockId,
+                group.hideFrame);
+    }
+
+    /**
+     * Base names of every tile texture of a group, "_f<n>" animation frames included.
+     */
+    private static List<String> tileBaseNames(String safeId, GroupInfo info, int animationFrames) {
+        List<String> names = new ArrayList<>();
+        for (int ty = 0; ty < info.height; ty++) {
+            for (int tx = 0; tx < info.width; tx++) {
+                String baseName = safeId + "_" + tx + "_" + ty;
+                names.add(baseName);
+                for (int frame = 1; frame < animationFrames; frame++) {
+                    names.add(baseName + FRAME_SUFFIX + frame);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Every tile block type key of {@code group}: the placed ones and their animation frames.
+     */
+    private static List<String> allTileKeys(FrameGroup group) {
+        List<String> keys = new ArrayList<>(group.tileBlocks.values());
+        for (String key : group.tileBlocks.values()) {
+            for (int frame = 1; frame < group.animationFrames; frame++) {
+                keys.add(key + FRAME_SUFFIX + frame);
+            }
+        }
+        return keys;
+    }
+
+    private static int frameOf(String baseName) {
+        int at = baseName.lastIndexOf(FRAME_SUFFIX);
+        if (at < 0) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(baseName.substring(at + FRAME_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Scales, rotates, flips, pads and underlays {@code region} of the source of {@code url} into a
+     * {@code targetW x targetH} canvas. Canvases are cached by source content hash and these inputs, so repeating a
+     * configuration (or rebuilding after a restart) skips the resampling. The returned canvas may be shared and must
+     * not be drawn on.
+     */
+    private BufferedImage renderCanvas(ImageFrameRenderTask task, String url, ImageFrameSourceRegion region,
+            int targetW, int targetH, String fit, int rot, boolean flipX, boolean flipY, String blockId,
+            boolean hideFrame) throws IOException {
+        task.enter(ImageFrameRenderTask.Stage.SOURCE);
+        String blockKind = canvasBlockKind(blockId, hideFrame);
+        // A source due for revalidation may have changed, so skip the canvas keyed by its old hash.
+        String sourceHash = imageCache.needsRevalidation(url) ? null : imageCache.getContentHash(url);
+        if (sourceHash != null) {
+            BufferedImage cached = canvasCache.get(ImageFrameCanvasCache.key(sourceHash, region, targetW, targetH, fit,
+                    rot, flipX, flipY, blockKind));
+            if (cached != null) {
+                return cached;
+            }
+        }
+        BufferedImage processed;
+        try (ImageFrameSourceHandle source = acquireSourceImage(url, region, targetW, targetH)) {
+            // The load is shared with every other render of this URL, so it is left to finish; stop right after it.
+            task.enter(ImageFrameRenderTask.Stage.SCALE);
+            // Uncached sources report their own size; the pixel cap may have subsampled them too.
+            java.awt.Dimension size = source.sourceSize() != null ? source.sourceSize() : imageCache.getSourceSize(url);
+            BufferedImage regionImage = region.apply(source.image(), size != null ? size.width : 0,
+                    size != null ? size.height : 0);
+            processed = source.detach(scaleImage(regionImage, targetW, targetH, fit));
+        }
+        processed = finishCanvas(processed, targetW, targetH, rot, flipX, flipY, blockId, hideFrame);
+        // The load may have (re)resolved the URL, so key by the hash the pixels actually came from.
+        sourceHash = imageCache.getContentHash(url);
+        if (sourceHash != null) {
+            canvasCache.put(ImageFrameCanvasCache.key(sourceHash, region, targetW, targetH, fit, rot, flipX, flipY,
+                    blockKind), processed);
+        }
+        return processed;
+    }
+
+    /**
+     * Rotates, flips, pads and underlays a scaled image into the final {@code targetW x targetH} canvas.
+     */
+    private BufferedImage finishCanvas(BufferedImage processed, int targetW, int targetH, int rot, boolean flipX,
+            boolean flipY, String blockId, boolean hideFrame) {
+        if (rot != 0) {
+            processed = rotate(processed, rot);
+        }
+        processed = applyFlips(processed, flipX, flipY);
+        // Ensure exact target size - fit modes should handle this, but pad/crop if needed
+        if (processed.getWidth() != targetW || processed.getHeight() != targetH) {
+            BufferedImage finalImage = new BufferedImage(targetW, targetH, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = finalImage.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            // Center the image
+            int x = Math.max(0, (targetW - processed.getWidth()) / 2);
+            int y = Math.max(0, (targetH - processed.getHeight()) / 2);
+            g.drawImage(processed, x, y, null);
+            g.dispose();
+            processed = finalImage;
+        }
+        // For slim frames, don't apply frame underlay - the model handles it separately with multi-texture
+        // For panels, build a texture atlas (frame on left, image on right)
+        if (!SLIM_BLOCK_ID.equals(blockId)) {
+            if (!isPanelLikeBlockId(blockId)) {
+                // Regular frames: apply frame underlay based on hideFrame
+                processed = applyFrameUnderlay(processed, hideFrame);
+            }
+        }
+        return processed;
+    }
+
+    private static String canvasBlockKind(String blockId, boolean hideFrame) {
+        if (SLIM_BLOCK_ID.equals(blockId)) {
+            return "slim";
+        }
+        if (isPanelLikeBlockId(blockId)) {
+            return "panel";
+        }
+        return hideFrame ? "frame_bare" : "frame";
+    }
+
+    /**
+     * Borrows the source of {@code url}, decoded finely enough that {@code region} of it covers
+     * {@code targetW x targetH}.
+     */
+    private ImageFrameSourceHandle acquireSourceImage(String url, ImageFrameSourceRegion region, int targetW,
+            int targetH) throws IOException {
+        try {
+            ImageFrameSource source = sources.resolve(url);
+            if (source.getCachePolicy() == ImageFrameSource.CachePolicy.DISK) {
+                // A region only needs the whole source decoded finely enough that the region itself covers the target.
+                java.awt.Dimension knownSize = imageCache.getSourceSize(url);
+                int decodeW = region.scaleTargetWidth(targetW, knownSize != null ? knownSize.width : 0);
+                int decodeH = region.scaleTargetHeight(targetH, knownSize != null ? knownSize.height : 0);
+                return imageCache.acquire(url, previous -> fetchSource(source, url, previous), decodeW, decodeH);
+            }
+            return loadUncached(source, url, region, targetW, targetH);
         } catch (IOException e) {
             throw e;
         } catch (RuntimeException e) {
@@ -763,6 +1450,11 @@ public class ImageFrameRuntimeManager {
         if (group == null) {
             return;
         }
+        ImageFrameRenderTask render = activeRenders.get(group.groupId);
+        if (render != null) {
+            render.cancel();
+        }
+        animations.remove(group.groupId);
         store.removeGroup(group.groupId);
         if (world != null && group.tileBlocks != null && !group.tileBlocks.isEmpty()) {
             List<Vector3i> positions = new ArrayList<>();
@@ -834,11 +1526,7 @@ public class ImageFrameRuntimeManager {
                         : sanitizeFilename(g.groupId);
                 GroupInfo gi = new GroupInfo(g.worldName, g.minX, g.minY, g.minZ,
                         g.sizeX, g.sizeY, g.sizeZ, java.util.Collections.emptyList(), null, g.blockId);
-                for (int ty = 0; ty < gi.height; ty++) {
-                    for (int tx = 0; tx < gi.width; tx++) {
-                        expectedBaseNames.add(expectedSafeId + "_" + tx + "_" + ty);
-                    }
-                }
+                expectedBaseNames.addAll(tileBaseNames(expectedSafeId, gi, g.animationFrames));
             }
         }
         String safeId = (group.safeId != null && !group.safeId.isEmpty())
@@ -846,40 +1534,48 @@ public class ImageFrameRuntimeManager {
                 : sanitizeFilename(group.groupId);
         GroupInfo info = new GroupInfo(group.worldName, group.minX, group.minY, group.minZ,
                 group.sizeX, group.sizeY, group.sizeZ, java.util.Collections.emptyList(), null, group.blockId);
+        List<String> baseNames = new ArrayList<>();
+        for (String baseName : tileBaseNames(safeId, info, group.animationFrames)) {
+            if (!expectedBaseNames.contains(baseName)) {
+                baseNames.add(baseName);
+            }
+        }
+        removeTileAssets(baseNames);
+    }
+
+    /**
+     * Unregisters and deletes the tile textures and block types named by {@code baseNames}.
+     */
+    private void removeTileAssets(Collection<String> baseNames) {
         List<Path> jsonPaths = new ArrayList<>();
         List<com.hypixel.hytale.server.core.asset.common.CommonAssetRegistry.PackAsset> removedCommon = new ArrayList<>();
         List<CommonAsset> updatedCommon = new ArrayList<>();
-        for (int ty = 0; ty < info.height; ty++) {
-            for (int tx = 0; tx < info.width; tx++) {
-                String baseName = safeId + "_" + tx + "_" + ty;
-                if (expectedBaseNames.contains(baseName)) {
-                    continue;
-                }
-                String assetPath = TILE_TEXTURE_DIR + baseName + ".png";
-                Path pngPath = runtimeCommonBlocksPath.resolve(baseName + ".png");
-                Path jsonPath = runtimeBlockTypesPath.resolve(TILE_PREFIX + baseName + ".json");
-
-                BooleanObjectPair<com.hypixel.hytale.server.core.asset.common.CommonAssetRegistry.PackAsset> removed = CommonAssetRegistry
-                        .removeCommonAssetByName(RUNTIME_ASSETS_PACK, assetPath);
-                if (removed != null && removed.second() != null) {
-                    if (removed.firstBoolean()) {
-                        updatedCommon.add(removed.second().asset());
-                    } else {
-                        removedCommon.add(removed.second());
-                    }
-                }
-                try {
-                    Files.deleteIfExists(pngPath);
-                } catch (IOException ignored) {
-                }
-                if (Files.exists(jsonPath)) {
-                    jsonPaths.add(jsonPath);
-                }
-                try {
-                    Files.deleteIfExists(jsonPath);
-                } catch (IOException ignored) {
+        for (String baseName : baseNames) {
+            String assetPath = TILE_TEXTURE_DIR + baseName + ".png";
+            Path pngPath = runtimeCommonBlocksPath.resolve(baseName + ".png");
+            Path jsonPath = runtimeBlockTypesPath.resolve(TILE_PREFIX + baseName + ".json");
+            tileHashes.forget(baseName);
+
+            BooleanObjectPair<com.hypixel.hytale.server.core.asset.common.CommonAssetRegistry.PackAsset> removed = CommonAssetRegistry
+                    .removeCommonAssetByName(RUNTIME_ASSETS_PACK, assetPath);
+            if (removed != null && removed.second() != null) {
+                if (removed.firstBoolean()) {
+                    updatedCommon.add(removed.second().asset());
+                } else {
+                    removedCommon.add(removed.second());
                 }
             }
+            try {
+                Files.deleteIfExists(pngPath);
+            } catch (IOException ignored) {
+            }
+            if (Files.exists(jsonPath)) {
+                jsonPaths.add(jsonPath);
+            }
+            try {
+                Files.deleteIfExists(jsonPath);
+            } catch (IOException ignored) {
+            }
         }
         if (!jsonPaths.isEmpty()) {
             try {
@@ -1109,15 +1805,13 @@ public class ImageFrameRuntimeManager {
             if (group == null || group.tileBlocks == null) {
                 continue;
             }
-            allKeys.addAll(group.tileBlocks.values());
+            allKeys.addAll(allTileKeys(group));
             // Collect texture paths from block keys
             String safeId = group.safeId != null && !group.safeId.isEmpty() ? group.safeId : sanitizeFilename(group.groupId);
             GroupInfo info = new GroupInfo(group.worldName, group.minX, group.minY, group.minZ,
                     group.sizeX, group.sizeY, group.sizeZ, java.util.Collections.emptyList(), null, group.blockId);
-            for (int ty = 0; ty < info.height; ty++) {
-                for (int tx = 0; tx < info.width; tx++) {
-                    allTexturePaths.add(TILE_TEXTURE_DIR + safeId + "_" + tx + "_" + ty + ".png");
-                }
+            for (String baseName : tileBaseNames(safeId, info, group.animationFrames)) {
+                allTexturePaths.add(TILE_TEXTURE_DIR + baseName + ".png");
             }
         }
 
@@ -1179,7 +1873,8 @@ public class ImageFrameRuntimeManager {
 
         // Step 2: Load only missing block types (don't reload everything)
         java.util.List<Path> missingPaths = new java.util.ArrayList<>();
-        for (String key : group.tileBlocks.values()) {
+        List<String> keys = allTileKeys(group);
+        for (String key : keys) {
             if (BlockType.getAssetMap().getAsset(key) == null) {
                 Path jsonPath = runtimeBlockTypesPath.resolve(key + ".json");
                 if (Files.exists(jsonPath)) {
@@ -1195,8 +1890,20 @@ public class ImageFrameRuntimeManager {
         broadcastCommonAssets();
 
         // Step 4: Collect and broadcast block types
+        int broadcast = broadcastTileBlockTypes(keys);
+        if (broadcast > 0) {
+            plugin.getLogger().at(java.util.logging.Level.INFO).log("Broadcasted ImageFrames group block types: %d",
+                    broadcast);
+        }
+    }
+
+    /**
+     * Sends the loaded block types for {@code keys} to every client, which also makes them rebuild the tile
+     * textures. Returns how many were sent.
+     */
+    private int broadcastTileBlockTypes(Collection<String> keys) {
         java.util.Map<String, BlockType> loaded = new java.util.HashMap<>();
-        for (String key : group.tileBlocks.values()) {
+        for (String key : keys) {
             BlockType bt = BlockType.getAssetMap().getAsset(key);
             if (bt != null) {
                 loaded.put(key, bt);
@@ -1210,9 +1917,8 @@ public class ImageFrameRuntimeManager {
                     TILE_UPDATE_QUERY);
             com.hypixel.hytale.server.core.universe.Universe.get()
                     .broadcastPacketNoCache((ToClientPacket) packet);
-            plugin.getLogger().at(java.util.logging.Level.INFO).log("Broadcasted ImageFrames group block types: %d",
-                    loaded.size());
         }
+        return loaded.size();
     }
 
     public void broadcastCommonAssets() {
@@ -1239,7 +1945,7 @@ public class ImageFrameRuntimeManager {
                 continue;
             }
             worldGroups.add(group);
-            requiredKeys.addAll(group.tileBlocks.values());
+            requiredKeys.addAll(allTileKeys(group));
         }
 
         if (worldGroups.isEmpty()) {
@@ -1833,24 +2539,40 @@ public class ImageFrameRuntimeManager {
         }
     }
 
-    private static BufferedImage downloadImage(String url) throws IOException {
-        if (url == null || url.isEmpty()) {
-            throw new IOException("URL is empty");
+    private static ImageFrameImageCache.SourceBytes fetchSource(ImageFrameSource source, String url,
+            ImageFrameImageCache.Validators previous) throws IOException {
+        ImageFrameSource.Result result = source.load(url, previous);
+        if (result == null || result.bytes == null) {
+            throw new IOException("Image source for " + ImageFrameSources.schemeOf(url) + " did not return bytes");
         }
-        URL u = new URL(url);
-        HttpURLConnection conn = (HttpURLConnection) u.openConnection();
-        conn.setConnectTimeout(10000);
-        conn.setReadTimeout(15000);
-        conn.setRequestProperty("User-Agent", "ImageFrames/1.0");
-        conn.connect();
-        if (conn.getResponseCode() >= 400) {
-            throw new IOException("HTTP " + conn.getResponseCode());
+        return result.bytes;
+    }
+
+    /**
+     * Loads {@code url} straight from a source that is not cached, subsampled like a cached decode for the target. The
+     * handle carries the source size so regions are scaled onto whatever was decoded.
+     */
+    private ImageFrameSourceHandle loadUncached(ImageFrameSource source, String url, ImageFrameSourceRegion region,
+            int targetW, int targetH) throws IOException {
+        ImageFrameSource.Result result = source.load(url, null);
+        if (result == null) {
+            throw new IOException("Image source returned nothing for " + url);
         }
-        BufferedImage img = ImageIO.read(conn.getInputStream());
-        if (img == null) {
-            throw new IOException("Unsupported image");
+        if (result.image != null) {
+            return ImageFrameSourceHandle.unmanaged(result.image);
+        }
+        ImageFrameImageCache.SourceBytes bytes = result.bytes;
+        try {
+            ImageFrameDecoder.Decoded decoded = bytes.file != null
+                    ? imageCache.getDecoder().decode(bytes.file, region, targetW, targetH)
+                    : imageCache.getDecoder().decode(bytes.bytes, region, targetW, targetH);
+            if (decoded == null) {
+                throw new IOException("Unsupported image format");
+            }
+            return ImageFrameSourceHandle.unmanaged(decoded.image, decoded.sourceWidth, decoded.sourceHeight);
+        } finally {
+            bytes.discard();
         }
-        return img;
     }
 
     private static BufferedImage scaleImage(BufferedImage src, int targetW, int targetH, String fit) {
@@ -1908,7 +2630,10 @@ public class ImageFrameRuntimeManager {
             return src;
         }
         BufferedImage current = src;
-        if (current.getType() != BufferedImage.TYPE_INT_ARGB) {
+        // Decoded sources already arrive int-packed; only off-heap views and plugin-supplied images need this pass.
+        int type = current.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE
+                && type != BufferedImage.TYPE_INT_RGB) {
             current = drawScaled(current, current.getWidth(), current.getHeight(),
                     RenderingHints.VALUE_INTERPOLATION_BICUBIC);
         }
@@ -1930,7 +2655,11 @@ public class ImageFrameRuntimeManager {
     }
 
     private static BufferedImage drawScaled(BufferedImage src, int w, int h, Object interpolationHint) {
-        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        // Opaque sources stay opaque so the scaling passes have no alpha channel to carry.
+        int type = src.getType() == BufferedImage.TYPE_INT_RGB
+                ? BufferedImage.TYPE_INT_RGB
+                : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage img = new BufferedImage(w, h, type);
         Graphics2D g = img.createGraphics();
         g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolationHint);
         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
@@ -2913,8 +3642,15 @@ public class ImageFrameRuntimeManager {
                 return false;
             }
         }
+        // Written aside and renamed, so a concurrent writer or reader never sees a partial file.
         Files.createDirectories(path.getParent());
-        Files.write(path, bytes);
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
         return true;
     }
 
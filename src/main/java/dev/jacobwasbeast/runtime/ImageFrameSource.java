@@ -0,0 +1,68 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Where the image for a frame URL comes from, picked by the URL's scheme through {@link ImageFrameSources}. Other
+ * plugins can register their own schemes there and hand back encoded bytes or ready pixels.
+ * <p>
+ * Implementations are called from worker threads, possibly for several URLs at once.
+ */
+public interface ImageFrameSource {
+    /**
+     * How the result of a load may be kept around.
+     */
+    enum CachePolicy {
+        /**
+         * Bytes go through the disk cache, are shared by every frame showing the same content, and are checked with
+         * the source again once the revalidation interval has passed. {@link #load} must return bytes.
+         */
+        DISK,
+        /**
+         * Loaded again for every render and never written to any cache, neither source nor canvas. For local files,
+         * inline data and images a plugin generates.
+         */
+        NONE
+    }
+
+    CachePolicy getCachePolicy();
+
+    /**
+     * Loads the image for {@code url}. Under {@link CachePolicy#DISK}, {@code previous} holds the validators of the
+     * cached copy (or null), and a source that can tell nothing changed may answer with
+     * {@link ImageFrameImageCache.SourceBytes#notModified(String, String)}.
+     */
+    Result load(String url, ImageFrameImageCache.Validators previous) throws IOException;
+
+    /**
+     * Encoded bytes or decoded pixels; exactly one is set.
+     */
+    final class Result {
+        public final ImageFrameImageCache.SourceBytes bytes;
+        public final BufferedImage image;
+
+        private Result(ImageFrameImageCache.SourceBytes bytes, BufferedImage image) {
+            this.bytes = bytes;
+            this.image = image;
+        }
+
+        public static Result of(ImageFrameImageCache.SourceBytes bytes) {
+            if (bytes == null) {
+                throw new IllegalArgumentException("bytes");
+            }
+            return new Result(bytes, null);
+        }
+
+        public static Result ofBytes(byte[] bytes, String contentType) {
+            return of(new ImageFrameImageCache.SourceBytes(bytes, contentType));
+        }
+
+        public static Result ofImage(BufferedImage image) {
+            if (image == null) {
+                throw new IllegalArgumentException("image");
+            }
+            return new Result(null, image);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A source image borrowed from the cache for the length of one render. The image must not be used after
+ * {@link #close()}; anything derived from it that outlives the handle should go through {@link #detach}.
+ */
+public final class ImageFrameSourceHandle implements AutoCloseable {
+    private final BufferedImage image;
+    private final Runnable release;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    ImageFrameSourceHandle(BufferedImage image, Runnable release) {
+        this(image, release, 0, 0);
+    }
+
+    private ImageFrameSourceHandle(BufferedImage image, Runnable release, int sourceWidth, int sourceHeight) {
+        this.image = image;
+        this.release = release;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+    }
+
+    /**
+     * A handle over a plain heap image, which stays valid for as long as anything references it.
+     */
+    static ImageFrameSourceHandle unmanaged(BufferedImage image) {
+        return new ImageFrameSourceHandle(image, null);
+    }
+
+    /**
+     * Like {@link #unmanaged(BufferedImage)}, for an image decoded from a {@code sourceWidth x sourceHeight} source
+     * that may have been subsampled.
+     */
+    static ImageFrameSourceHandle unmanaged(BufferedImage image, int sourceWidth, int sourceHeight) {
+        return new ImageFrameSourceHandle(image, null, sourceWidth, sourceHeight);
+    }
+
+    /**
+     * The full size of the source the image was decoded from, or null when the image cache tracks it instead.
+     */
+    public java.awt.Dimension sourceSize() {
+        return sourceWidth > 0 && sourceHeight > 0 ? new java.awt.Dimension(sourceWidth, sourceHeight) : null;
+    }
+
+    public BufferedImage image() {
+        if (closed.get()) {
+            throw new IllegalStateException("Source handle already closed");
+        }
+        return image;
+    }
+
+    /**
+     * Returns {@code derived}, copied onto the heap if it still shares pixels with this handle's image (scaling to
+     * the same size or cropping both hand back views of their input).
+     */
+    public BufferedImage detach(BufferedImage derived) {
+        if (release == null || derived == null
+                || derived.getRaster().getDataBuffer() != image.getRaster().getDataBuffer()) {
+            return derived;
+        }
+        BufferedImage copy = new BufferedImage(derived.getWidth(), derived.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(derived, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true) && release != null) {
+            release.run();
+        }
+    }
+}
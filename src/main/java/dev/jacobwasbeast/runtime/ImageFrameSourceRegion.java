@@ -0,0 +1,123 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * A rectangle of the source image, in the source's own pixels, that a frame shows instead of the whole image. Frames
+ * cut from the same sprite sheet or mural share one cached download and decode; each renders only its region.
+ */
+public final class ImageFrameSourceRegion {
+    public static final ImageFrameSourceRegion FULL = new ImageFrameSourceRegion(0, 0, 0, 0);
+
+    public final int x;
+    public final int y;
+    public final int width;
+    public final int height;
+
+    private ImageFrameSourceRegion(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * A zero or negative size means the whole image.
+     */
+    public static ImageFrameSourceRegion of(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return FULL;
+        }
+        return new ImageFrameSourceRegion(Math.max(0, x), Math.max(0, y), width, height);
+    }
+
+    /**
+     * Parses {@code "x, y, width, height"}; blank text means the whole image.
+     */
+    public static ImageFrameSourceRegion parse(String text) {
+        if (text == null || text.isBlank()) {
+            return FULL;
+        }
+        String[] parts = text.trim().split("[,\\s]+");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Expected x, y, width, height");
+        }
+        int[] values = new int[4];
+        for (int i = 0; i < 4; i++) {
+            try {
+                values[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + parts[i]);
+            }
+        }
+        if (values[0] < 0 || values[1] < 0 || values[2] <= 0 || values[3] <= 0) {
+            throw new IllegalArgumentException("Region must have a non-negative origin and a positive size");
+        }
+        return new ImageFrameSourceRegion(values[0], values[1], values[2], values[3]);
+    }
+
+    public boolean isFull() {
+        return width <= 0 || height <= 0;
+    }
+
+    /**
+     * Cuts this region out of {@code image}, a decode of a {@code sourceWidth x sourceHeight} source that may have
+     * been subsampled. The result shares pixels with {@code image}. A region reaching past the edge is clipped.
+     */
+    public BufferedImage apply(BufferedImage image, int sourceWidth, int sourceHeight) throws IOException {
+        if (isFull()) {
+            return image;
+        }
+        double sx = sourceWidth > 0 ? image.getWidth() / (double) sourceWidth : 1.0;
+        double sy = sourceHeight > 0 ? image.getHeight() / (double) sourceHeight : 1.0;
+        int left = (int) Math.floor(x * sx);
+        int top = (int) Math.floor(y * sy);
+        int right = Math.min(image.getWidth(), (int) Math.ceil((x + (long) width) * sx));
+        int bottom = Math.min(image.getHeight(), (int) Math.ceil((y + (long) height) * sy));
+        if (left >= right || top >= bottom) {
+            throw new IOException("Source region " + this + " is outside the " + sourceWidth + "x" + sourceHeight
+                    + " image");
+        }
+        return image.getSubimage(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * How large a decode of the whole source has to be for this region to come out at {@code targetW x targetH}.
+     */
+    public int scaleTargetWidth(int targetW, int sourceWidth) {
+        if (isFull() || sourceWidth <= 0 || targetW <= 0) {
+            return isFull() ? targetW : 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(targetW * (double) sourceWidth / width));
+    }
+
+    public int scaleTargetHeight(int targetH, int sourceHeight) {
+        if (isFull() || sourceHeight <= 0 || targetH <= 0) {
+            return isFull() ? targetH : 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(targetH * (double) sourceHeight / height));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ImageFrameSourceRegion other)) {
+            return false;
+        }
+        return x == other.x && y == other.y && width == other.width && height == other.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((x * 31 + y) * 31 + width) * 31 + height;
+    }
+
+    @Override
+    public String toString() {
+        return isFull() ? "" : String.format(Locale.ROOT, "%d, %d, %d, %d", x, y, width, height);
+    }
+}
@@ -0,0 +1,66 @@
+package dev.jacobwasbeast.runtime;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Image sources by URL scheme. Built-in sources cover {@code http}, {@code https}, {@code file} and {@code data};
+ * registering a scheme again replaces its source.
+ */
+public class ImageFrameSources {
+    private final Map<String, ImageFrameSource> byScheme = new ConcurrentHashMap<>();
+
+    public void register(String scheme, ImageFrameSource source) {
+        if (scheme == null || scheme.isEmpty() || source == null) {
+            throw new IllegalArgumentException("scheme and source are required");
+        }
+        byScheme.put(scheme.toLowerCase(Locale.ROOT), source);
+    }
+
+    public void unregister(String scheme) {
+        if (scheme != null) {
+            byScheme.remove(scheme.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public Set<String> getSchemes() {
+        return new TreeSet<>(byScheme.keySet());
+    }
+
+    /**
+     * The source for {@code url}'s scheme.
+     */
+    public ImageFrameSource resolve(String url) throws IOException {
+        String scheme = schemeOf(url);
+        ImageFrameSource source = scheme != null ? byScheme.get(scheme) : null;
+        if (source == null) {
+            throw new IOException("Unsupported URL: " + url);
+        }
+        return source;
+    }
+
+    /**
+     * The lower-cased scheme of {@code url}, or null if it has none.
+     */
+    static String schemeOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        int colon = url.indexOf(':');
+        if (colon <= 0) {
+            return null;
+        }
+        for (int i = 0; i < colon; i++) {
+            char c = url.charAt(i);
+            boolean valid = Character.isLetter(c) || i > 0 && (Character.isDigit(c) || c == '+' || c == '-' || c == '.');
+            if (!valid || c > 127) {
+                return null;
+            }
+        }
+        return url.substring(0, colon).toLowerCase(Locale.ROOT);
+    }
+}
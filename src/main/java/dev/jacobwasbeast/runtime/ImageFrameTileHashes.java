@@ -0,0 +1,43 @@
+package dev.jacobwasbeast.runtime;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pixel hash of each tile texture as last written, by tile base name; lets a refresh skip tiles whose pixels did not
+ * change.
+ */
+final class ImageFrameTileHashes {
+    private final Map<String, Long> written = new ConcurrentHashMap<>();
+
+    /**
+     * An FNV-style 64-bit mix over the tile's ARGB ints, row by row; each whole pixel is one step, not four bytes.
+     * Subimages hash the same as copies of their pixels.
+     */
+    static long pixelHash(BufferedImage tile) {
+        int w = tile.getWidth();
+        int[] row = new int[w];
+        long hash = 0xcbf29ce484222325L;
+        for (int y = 0; y < tile.getHeight(); y++) {
+            tile.getRGB(0, y, w, 1, row, 0, w);
+            for (int argb : row) {
+                hash = (hash ^ argb) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    boolean matches(String baseName, long pixelHash) {
+        Long hash = written.get(baseName);
+        return hash != null && hash == pixelHash;
+    }
+
+    void record(String baseName, long pixelHash) {
+        written.put(baseName, pixelHash);
+    }
+
+    void forget(String baseName) {
+        written.remove(baseName);
+    }
+}
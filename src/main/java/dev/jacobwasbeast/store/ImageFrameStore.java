@@ -10,16 +10,24 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 public class ImageFrameStore extends BlockingDiskFile {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
     private final Map<String, FrameGroup> groups = new HashMap<>();
     private final Map<String, String> posIndex = new HashMap<>();
+    private final Map<String, String> groupUrls = new HashMap<>();
+    // Groups with frames to step through, so the animation tick does not walk every group.
+    private final Set<String> animatedGroupIds = new HashSet<>();
+    private UrlReferenceListener urlReferenceListener;
 
     public ImageFrameStore() {
         super(Path.of("ImageFrames/frames.json"));
@@ -34,7 +42,12 @@ public class ImageFrameStore extends BlockingDiskFile {
         if (loaded != null) {
             groups.putAll(loaded);
         }
+        animatedGroupIds.clear();
+        for (FrameGroup group : groups.values()) {
+            indexAnimation(group);
+        }
         rebuildIndex();
+        syncUrlReferences();
     }
 
     @Override
@@ -69,16 +82,44 @@ public class ImageFrameStore extends BlockingDiskFile {
 
     public synchronized void putGroup(FrameGroup group) {
         groups.put(group.groupId, group);
+        indexAnimation(group);
         rebuildIndex();
+        syncUrlReferences();
         syncSave();
     }
 
+    /**
+     * Stores {@code replacement} in place of {@code expected}, unless the group was replaced or removed meanwhile.
+     */
+    public synchronized boolean replaceGroup(FrameGroup expected, FrameGroup replacement) {
+        if (groups.get(expected.groupId) != expected) {
+            return false;
+        }
+        putGroup(replacement);
+        return true;
+    }
+
     public synchronized void removeGroup(String groupId) {
         groups.remove(groupId);
+        animatedGroupIds.remove(groupId);
         rebuildIndex();
+        syncUrlReferences();
         syncSave();
     }
 
+    /**
+     * Registers the listener told whenever a group starts or stops showing a URL. It is immediately told about every
+     * group already loaded.
+     */
+    public synchronized void setUrlReferenceListener(UrlReferenceListener listener) {
+        this.urlReferenceListener = listener;
+        if (listener != null) {
+            for (String url : groupUrls.values()) {
+                listener.retainUrl(url);
+            }
+        }
+    }
+
     public synchronized FrameGroup getGroup(String groupId) {
         return groups.get(groupId);
     }
@@ -93,10 +134,54 @@ public class ImageFrameStore extends BlockingDiskFile {
         return Collections.unmodifiableMap(new HashMap<>(groups));
     }
 
+    /**
+     * The groups that had two or more animation frames when they were stored, by group ID.
+     */
+    public synchronized Map<String, FrameGroup> getAnimatedGroupsSnapshot() {
+        Map<String, FrameGroup> animated = new HashMap<>();
+        for (String groupId : animatedGroupIds) {
+            animated.put(groupId, groups.get(groupId));
+        }
+        return Collections.unmodifiableMap(animated);
+    }
+
     public static String toPosKey(String worldName, int x, int y, int z) {
         return worldName + ":" + x + ":" + y + ":" + z;
     }
 
+    private void syncUrlReferences() {
+        Map<String, String> current = new HashMap<>();
+        for (FrameGroup group : groups.values()) {
+            if (group != null && group.url != null && !group.url.isEmpty()) {
+                current.put(group.groupId, group.url);
+            }
+        }
+        UrlReferenceListener listener = urlReferenceListener;
+        if (listener != null) {
+            // Retain before releasing so a URL moving between groups never drops to zero references.
+            for (Map.Entry<String, String> e : current.entrySet()) {
+                if (!e.getValue().equals(groupUrls.get(e.getKey()))) {
+                    listener.retainUrl(e.getValue());
+                }
+            }
+            for (Map.Entry<String, String> e : groupUrls.entrySet()) {
+                if (!e.getValue().equals(current.get(e.getKey()))) {
+                    listener.releaseUrl(e.getValue());
+                }
+            }
+        }
+        groupUrls.clear();
+        groupUrls.putAll(current);
+    }
+
+    private void indexAnimation(FrameGroup group) {
+        if (group != null && group.animationFrames > 1) {
+            animatedGroupIds.add(group.groupId);
+        } else if (group != null) {
+            animatedGroupIds.remove(group.groupId);
+        }
+    }
+
     private void rebuildIndex() {
         posIndex.clear();
         for (FrameGroup group : groups.values()) {
@@ -109,6 +194,12 @@ public class ImageFrameStore extends BlockingDiskFile {
         }
     }
 
+    public interface UrlReferenceListener {
+        void retainUrl(String url);
+
+        void releaseUrl(String url);
+    }
+
     public static class FrameGroup {
         public String groupId;
         public String safeId;
@@ -121,6 +212,11 @@ public class ImageFrameStore extends BlockingDiskFile {
         public int sizeZ;
         public String ownerUuid;
         public String url;
+        // Region of the source to show, in source pixels; a zero size shows the whole image.
+        public int cropX;
+        public int cropY;
+        public int cropWidth;
+        public int cropHeight;
         public String fit;
         public int rot;
         public String facing;
@@ -131,6 +227,11 @@ public class ImageFrameStore extends BlockingDiskFile {
         public boolean collision = true; // Default to collision enabled
         public double bannerScale = 1.0;
         public String bannerMode = "texture";
+        // Seconds between checks of the source for new content; 0 keeps the frame as first rendered.
+        public int refreshSeconds;
+        // Frames of an animated source; each tile has "_f<n>" variants for frames 1 and up. 0 for a still image.
+        public int animationFrames;
+        public List<Integer> frameDelays;
         public String normalAxis;
         public Map<String, String> tileBlocks = new HashMap<>();
         public transient Map<String, byte[]> tilePngByPath = new HashMap<>();
@@ -143,6 +244,45 @@ public class ImageFrameStore extends BlockingDiskFile {
             this.groupId = groupId;
         }
 
+        /**
+         * A copy that can be changed without affecting this group, transient state included.
+         */
+        public FrameGroup copy() {
+            FrameGroup copy = new FrameGroup(groupId);
+            copy.safeId = safeId;
+            copy.worldName = worldName;
+            copy.minX = minX;
+            copy.minY = minY;
+            copy.minZ = minZ;
+            copy.sizeX = sizeX;
+            copy.sizeY = sizeY;
+            copy.sizeZ = sizeZ;
+            copy.ownerUuid = ownerUuid;
+            copy.url = url;
+            copy.cropX = cropX;
+            copy.cropY = cropY;
+            copy.cropWidth = cropWidth;
+            copy.cropHeight = cropHeight;
+            copy.fit = fit;
+            copy.rot = rot;
+            copy.facing = facing;
+            copy.flipX = flipX;
+            copy.flipY = flipY;
+            copy.blockId = blockId;
+            copy.hideFrame = hideFrame;
+            copy.collision = collision;
+            copy.bannerScale = bannerScale;
+            copy.bannerMode = bannerMode;
+            copy.refreshSeconds = refreshSeconds;
+            copy.animationFrames = animationFrames;
+            copy.frameDelays = frameDelays != null ? new ArrayList<>(frameDelays) : null;
+            copy.normalAxis = normalAxis;
+            copy.tileBlocks = tileBlocks != null ? new HashMap<>(tileBlocks) : new HashMap<>();
+            copy.tilePngByPath = tilePngByPath != null ? new HashMap<>(tilePngByPath) : new HashMap<>();
+            copy.originalRotations = originalRotations != null ? new HashMap<>(originalRotations) : new HashMap<>();
+            return copy;
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (this == obj) {
@@ -161,6 +301,10 @@ public class ImageFrameStore extends BlockingDiskFile {
                     && sizeZ == other.sizeZ
                     && Objects.equals(ownerUuid, other.ownerUuid)
                     && Objects.equals(url, other.url)
+                    && cropX == other.cropX
+                    && cropY == other.cropY
+                    && cropWidth == other.cropWidth
+                    && cropHeight == other.cropHeight
                     && Objects.equals(fit, other.fit)
                     && rot == other.rot
                     && flipX == other.flipX
@@ -169,13 +313,17 @@ public class ImageFrameStore extends BlockingDiskFile {
                     && hideFrame == other.hideFrame
                     && Double.compare(bannerScale, other.bannerScale) == 0
                     && Objects.equals(bannerMode, other.bannerMode)
+                    && refreshSeconds == other.refreshSeconds
+                    && animationFrames == other.animationFrames
+                    && Objects.equals(frameDelays, other.frameDelays)
                     && Objects.equals(tileBlocks, other.tileBlocks);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(groupId, worldName, minX, minY, minZ, sizeX, sizeY, sizeZ, ownerUuid, url, fit, rot, flipX, flipY,
-                    blockId, hideFrame, bannerScale, bannerMode, tileBlocks);
+            return Objects.hash(groupId, worldName, minX, minY, minZ, sizeX, sizeY, sizeZ, ownerUuid, url, cropX, cropY,
+                    cropWidth, cropHeight, fit, rot, flipX, flipY, blockId, hideFrame, bannerScale, bannerMode,
+                    refreshSeconds, animationFrames, frameDelays, tileBlocks);
         }
     }
 }
@@ -26,6 +26,7 @@ import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import dev.jacobwasbeast.ImageFramesPlugin;
+import dev.jacobwasbeast.runtime.ImageFrameSourceRegion;
 import dev.jacobwasbeast.store.ImageFrameStore.FrameGroup;
 import javax.annotation.Nonnull;
 
@@ -73,10 +74,13 @@ public class ImageFrameConfigPage extends InteractiveCustomUIPage<ImageFrameConf
             if (group.url != null) {
                 commandBuilder.set("#UrlInput.Value", group.url);
             }
+            commandBuilder.set("#SourceRegionInput.Value", ImageFrameSourceRegion
+                    .of(group.cropX, group.cropY, group.cropWidth, group.cropHeight).toString());
             if (group.fit != null) {
                 commandBuilder.set("#FitDropdown.Value", group.fit);
             }
             commandBuilder.set("#RotationInput.Value", String.valueOf(group.rot));
+            commandBuilder.set("#RefreshInput.Value", String.valueOf(group.refreshSeconds));
             commandBuilder.set("#FlipXContainer #CheckBox.Value", group.flipX);
             commandBuilder.set("#FlipYContainer #CheckBox.Value", group.flipY);
             // Only show hideFrame and collision checkboxes for panels
@@ -185,6 +189,11 @@ public class ImageFrameConfigPage extends InteractiveCustomUIPage<ImageFrameConf
                 ? data.bannerMode.trim()
                 : "texture";
         int rot = parseInt(data.rotation, 0);
+        int refreshSeconds = Math.max(0, parseInt(data.refresh, 0));
+        if (refreshSeconds > 0) {
+            refreshSeconds = Math.max(refreshSeconds, plugin.getConfig().getAutoRefreshMinSeconds());
+        }
+        final int finalRefreshSeconds = refreshSeconds;
         boolean flipX = data.flipX;
         boolean flipY = data.flipY;
         double bannerScaleInput = Math.max(0.25, Math.min(4.0, parseDouble(data.bannerScale, 1.0)));
@@ -193,6 +202,21 @@ public class ImageFrameConfigPage extends InteractiveCustomUIPage<ImageFrameConf
             playerRef.sendMessage(Message.raw("URL is required."));
             return;
         }
+        // Checked here as well as on load, so an oversized inline image is never stored, hashed or logged.
+        int dataUrlMaxKb = plugin.getConfig().getDataUrlMaxKb();
+        if (url.regionMatches(true, 0, "data:", 0, 5) && url.length() > dataUrlMaxKb * 1024L) {
+            playerRef.sendMessage(Message.raw(dataUrlMaxKb > 0
+                    ? "data: URLs are limited to " + dataUrlMaxKb + " KB."
+                    : "data: URLs are disabled."));
+            return;
+        }
+        ImageFrameSourceRegion sourceRegion;
+        try {
+            sourceRegion = ImageFrameSourceRegion.parse(data.sourceRegion);
+        } catch (IllegalArgumentException e) {
+            playerRef.sendMessage(Message.raw("Invalid source region: " + e.getMessage()));
+            return;
+        }
 
         var world = store.getExternalData().getWorld();
         if (world == null || blockPos == null) {
@@ -301,18 +325,25 @@ public class ImageFrameConfigPage extends InteractiveCustomUIPage<ImageFrameConf
             final String finalBannerMode = isBanner
                     ? ("area".equalsIgnoreCase(bannerModeInput) ? "area" : "texture")
                     : "texture";
+            // Re-applying this frame before the render below finishes cancels it in favour of the new one.
+            final dev.jacobwasbeast.runtime.ImageFrameRenderTask renderTask =
+                    plugin.getRuntimeManager().beginRender(info);
             java.util.concurrent.CompletableFuture
                     .supplyAsync(() -> {
                         try {
-                            return plugin.getRuntimeManager().buildGroupAssets(info, finalUrl, finalFit, finalRot,
-                                    finalFlipX,
+                            return plugin.getRuntimeManager().buildGroupAssets(renderTask, info, finalUrl,
+                                    finalFit, finalRot, finalFlipX,
                                     finalFlipY, finalOwnerUuid, facing, finalBlockId, finalHideFrame, finalCollision,
-                                    finalBannerScale, finalBannerMode);
+                                    finalBannerScale, finalBannerMode, sourceRegion, finalRefreshSeconds);
                         } catch (Exception e) {
                             throw new RuntimeException(e);
                         }
-                    })
+                    }, plugin.getRuntimeManager().getDownloadExecutor())
+                    .whenComplete((group, ex) -> plugin.getRuntimeManager().endRender(renderTask))
                     .thenAccept(group -> {
+                        if (renderTask.isCancelled()) {
+                            return;
+                        }
                         // Broadcast assets (same flow as original frames)
                         plugin.getRuntimeManager().broadcastGroupAssets(group);
                         world.execute(() -> {
@@ -333,6 +364,9 @@ public class ImageFrameConfigPage extends InteractiveCustomUIPage<ImageFrameConf
                         });
                     })
                     .exceptionally(ex -> {
+                        if (renderTask.isCancelled()) {
+                            return null;
+                        }
                         world.execute(() -> {
                             if (previousGroup != null) {
                                 plugin.getRuntimeManager().applyGroup(world, info, previousGroup, previousGroup.originalRotations != null ? previousGroup.originalRotations : new java.util.HashMap<>());
@@ -347,8 +381,10 @@ public class ImageFrameConfigPage extends InteractiveCustomUIPage<ImageFrameConf
     private void addEventBindings(UIEventBuilder eventBuilder) {
         eventBuilder.addEventBinding(CustomUIEventBindingType.Activating, "#ApplyButton",
                 EventData.of("Action", "Apply").append("@Url", "#UrlInput.Value")
+                        .append("@SourceRegion", "#SourceRegionInput.Value")
                         .append("@Fit", "#FitDropdown.Value")
                         .append("@Rotation", "#RotationInput.Value")
+                        .append("@Refresh", "#RefreshInput.Value")
                         .append("@FlipX", "#FlipXContainer #CheckBox.Value")
                         .append("@FlipY", "#FlipYContainer #CheckBox.Value")
                         .append("@HideFrame", "#HideFrameContainer #CheckBox.Value")
@@ -417,10 +453,15 @@ public class ImageFrameConfigPage extends InteractiveCustomUIPage<ImageFrameConf
                 .add()
                 .append(new KeyedCodec<>("@Url", Codec.STRING), (d, v) -> d.url = v, d -> d.url)
                 .add()
+                .append(new KeyedCodec<>("@SourceRegion", Codec.STRING), (d, v) -> d.sourceRegion = v,
+                        d -> d.sourceRegion)
+                .add()
                 .append(new KeyedCodec<>("@Fit", Codec.STRING), (d, v) -> d.fit = v, d -> d.fit)
                 .add()
                 .append(new KeyedCodec<>("@Rotation", Codec.STRING), (d, v) -> d.rotation = v, d -> d.rotation)
                 .add()
+                .append(new KeyedCodec<>("@Refresh", Codec.STRING), (d, v) -> d.refresh = v, d -> d.refresh)
+                .add()
                 .append(new KeyedCodec<>("@FlipX", Codec.BOOLEAN), (d, v) -> d.flipX = v, d -> d.flipX)
                 .add()
                 .append(new KeyedCodec<>("@FlipY", Codec.BOOLEAN), (d, v) -> d.flipY = v, d -> d.flipY)
@@ -437,8 +478,10 @@ public class ImageFrameConfigPage extends InteractiveCustomUIPage<ImageFrameConf
 
         public String action;
         public String url;
+        public String sourceRegion;
         public String fit;
         public String rotation;
+        public String refresh;
         public boolean flipX;
         public boolean flipY;
         public boolean hideFrame;
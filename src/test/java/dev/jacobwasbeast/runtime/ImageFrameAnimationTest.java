@@ -0,0 +1,158 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageFrameAnimationTest {
+    private static final int RED = 0xFFFF0000;
+    private static final int BLUE = 0xFF0000FF;
+    private static final int GREEN = 0xFF00FF00;
+
+    @TempDir
+    Path dir;
+
+    private record GifFrame(BufferedImage image, int left, int top, String disposal, int delayCentis) {
+    }
+
+    private static BufferedImage filled(int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(rgb));
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return image;
+    }
+
+    private Path gif(List<GifFrame> frames) throws IOException {
+        Path file = Files.createTempFile(dir, "anim", ".gif");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+            writer.setOutput(out);
+            writer.prepareWriteSequence(null);
+            for (GifFrame frame : frames) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(frame.image()), param);
+                String format = metadata.getNativeMetadataFormatName();
+                IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+                IIOMetadataNode control = (IIOMetadataNode) root.getElementsByTagName("GraphicControlExtension")
+                        .item(0);
+                control.setAttribute("disposalMethod", frame.disposal());
+                control.setAttribute("delayTime", Integer.toString(frame.delayCentis()));
+                IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+                descriptor.setAttribute("imageLeftPosition", Integer.toString(frame.left()));
+                descriptor.setAttribute("imageTopPosition", Integer.toString(frame.top()));
+                metadata.setFromTree(format, root);
+                writer.writeToSequence(new IIOImage(frame.image(), null, metadata), param);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return file;
+    }
+
+    /**
+     * A red screen, a blue square over its middle disposed with {@code disposal}, then a small green corner frame.
+     */
+    private ImageFrameDecoder.Animation disposedWith(String disposal) throws IOException {
+        Path file = gif(List.of(
+                new GifFrame(filled(20, 20, RED), 0, 0, "none", 10),
+                new GifFrame(filled(10, 10, BLUE), 5, 5, disposal, 10),
+                new GifFrame(filled(2, 2, GREEN), 0, 0, "none", 10)));
+        ImageFrameDecoder.Animation animation = new ImageFrameDecoder().decodeAnimation(file, 0, 0, 3);
+        assertEquals(3, animation.frames.size());
+        assertEquals(BLUE, animation.frames.get(1).getRGB(10, 10));
+        assertEquals(GREEN, animation.frames.get(2).getRGB(0, 0));
+        return animation;
+    }
+
+    @Test
+    void keepsTheFrameWithoutDisposal() throws IOException {
+        assertEquals(BLUE, disposedWith("none").frames.get(2).getRGB(10, 10));
+    }
+
+    @Test
+    void clearsTheFrameRectangleToTransparent() throws IOException {
+        ImageFrameDecoder.Animation animation = disposedWith("restoreToBackgroundColor");
+        assertEquals(0, animation.frames.get(2).getRGB(10, 10) >>> 24);
+        assertEquals(RED, animation.frames.get(2).getRGB(2, 10), "only the frame rectangle is cleared");
+    }
+
+    @Test
+    void restoresWhatWasUnderTheFrame() throws IOException {
+        ImageFrameDecoder.Animation animation = disposedWith("restoreToPrevious");
+        assertEquals(RED, animation.frames.get(2).getRGB(10, 10));
+        assertEquals(GREEN, animation.frames.get(2).getRGB(1, 1));
+    }
+
+    @Test
+    void spreadsKeptFramesEvenlyAndSumsTheirDelays() throws IOException {
+        List<GifFrame> frames = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            frames.add(new GifFrame(filled(40, 30, i * 25 << 16), 0, 0, "none", i == 9 ? 1 : 5));
+        }
+        ImageFrameDecoder.Animation animation = new ImageFrameDecoder().decodeAnimation(gif(frames), 0, 0, 4);
+
+        assertEquals(4, animation.frames.size());
+        int[] reds = new int[4];
+        for (int i = 0; i < 4; i++) {
+            reds[i] = animation.frames.get(i).getRGB(5, 5) >> 16 & 0xFF;
+        }
+        assertEquals(List.of(0, 75, 125, 200), List.of(reds[0], reds[1], reds[2], reds[3]));
+        // Source frames 0-2, 3-4, 5-7 and 8-9; the last has a 10 ms delay, which plays at the 100 ms default.
+        assertEquals(List.of(150, 100, 150, 150), animation.delaysMillis);
+        assertEquals(40, animation.sourceWidth);
+        assertEquals(30, animation.sourceHeight);
+    }
+
+    @Test
+    void subsamplesAllFramesUnderThePixelCap() throws IOException {
+        List<GifFrame> frames = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            frames.add(new GifFrame(filled(40, 30, RED), 0, 0, "none", 5));
+        }
+        Path file = gif(frames);
+        ImageFrameDecoder decoder = new ImageFrameDecoder();
+        decoder.setMaxPixels(2000L);
+
+        ImageFrameDecoder.Animation animation = decoder.decodeAnimation(file, 0, 0, 4);
+
+        assertEquals(2, animation.subsample);
+        assertEquals(20, animation.frames.get(0).getWidth());
+        assertEquals(15, animation.frames.get(0).getHeight());
+
+        decoder.setMaxPixels(1000L);
+        assertThrows(IOException.class, () -> decoder.decodeAnimation(file, 0, 0, 4),
+                "the full-size compositing canvas must fit the cap too");
+    }
+
+    @Test
+    void ignoresStillImages() throws IOException {
+        Path still = gif(List.of(new GifFrame(filled(4, 4, RED), 0, 0, "none", 5)));
+        assertNull(new ImageFrameDecoder().decodeAnimation(still, 0, 0, 4));
+
+        Path png = dir.resolve("still.png");
+        ImageIO.write(filled(4, 4, RED), "png", png.toFile());
+        assertNull(new ImageFrameDecoder().decodeAnimation(png, 0, 0, 4));
+    }
+}
@@ -0,0 +1,86 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+class ImageFrameDataSourceTest {
+    private static ImageFrameDataSource source(int maxUrlLength) {
+        ImageFrameDataSource source = new ImageFrameDataSource(new ImageFrameDecoder());
+        source.setMaxUrlLength(maxUrlLength);
+        return source;
+    }
+
+    @Test
+    void decodesBase64Payloads() throws IOException {
+        byte[] png = ImageFrameImageCacheTest.png(0xFF0000);
+        String url = "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+
+        ImageFrameSource.Result result = source(64 * 1024).load(url, null);
+
+        assertArrayEquals(png, result.bytes.bytes);
+        assertEquals("image/png", result.bytes.contentType);
+        assertEquals(ImageFrameSource.CachePolicy.NONE, source(1).getCachePolicy());
+    }
+
+    @Test
+    void decodesPercentEncodedPayloads() throws IOException {
+        ImageFrameSource.Result result = source(1024).load("DATA:image/svg+xml;charset=utf-8,%3Csvg%2F%3E a", null);
+
+        assertEquals("<svg/> a", new String(result.bytes.bytes, StandardCharsets.US_ASCII));
+        assertEquals("image/svg+xml", result.bytes.contentType);
+        assertNull(source(1024).load("data:,x", null).bytes.contentType);
+    }
+
+    @Test
+    void rejectsMalformedUrls() {
+        ImageFrameDataSource source = source(1024);
+        assertThrows(IOException.class, () -> source.load("data:image/png;base64", null), "no comma");
+        assertThrows(IOException.class, () -> source.load("data:image/png;base64,A", null));
+        assertThrows(IOException.class, () -> source.load("data:image/png,%zz", null));
+        IOException nonAscii = assertThrows(IOException.class, () -> source.load("data:text/plain,caf\u00e9", null));
+        assertEquals("Invalid data URL", nonAscii.getMessage());
+        assertThrows(IOException.class, () -> source.load("data:text/plain,\u20ac", null));
+    }
+
+    @Test
+    void capsTheUrlLength() throws IOException {
+        String url = "data:,abcdef";
+        assertEquals(6, source(url.length()).load(url, null).bytes.bytes.length);
+
+        IOException tooLong = assertThrows(IOException.class, () -> source(url.length() - 1).load(url, null));
+        assertTrue(tooLong.getMessage().contains("longer than"), tooLong.getMessage());
+
+        IOException disabled = assertThrows(IOException.class, () -> source(0).load(url, null));
+        assertTrue(disabled.getMessage().contains("disabled"), disabled.getMessage());
+    }
+
+    @Test
+    void rejectsPayloadsOverTheDecoderByteCap() {
+        ImageFrameDecoder decoder = new ImageFrameDecoder();
+        decoder.setMaxBytes(3L);
+        ImageFrameDataSource source = new ImageFrameDataSource(decoder);
+        source.setMaxUrlLength(1024);
+        assertThrows(IOException.class, () -> source.load("data:;base64,AAAAAAAA", null));
+        assertThrows(IOException.class, () -> source.load("data:,abcd", null));
+    }
+
+    @Test
+    void readsTheScheme() {
+        assertEquals("data", ImageFrameSources.schemeOf("DATA:image/png;base64,AAAA"));
+        assertEquals("https", ImageFrameSources.schemeOf("https://example.com/a.png"));
+        assertEquals("svn+ssh", ImageFrameSources.schemeOf("svn+ssh://host"));
+        assertNull(ImageFrameSources.schemeOf("no-scheme"));
+        assertNull(ImageFrameSources.schemeOf(":empty"));
+        assertNull(ImageFrameSources.schemeOf("1http://host"));
+        assertNull(ImageFrameSources.schemeOf("c\u00e4t:x"));
+        assertNull(ImageFrameSources.schemeOf(null));
+    }
+}
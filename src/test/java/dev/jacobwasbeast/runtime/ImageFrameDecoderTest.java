@@ -0,0 +1,77 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class ImageFrameDecoderTest {
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void keepsTwiceTheTargetResolution() {
+        ImageFrameDecoder decoder = new ImageFrameDecoder();
+        assertEquals(1, decoder.subsampleFor(1000, 1000, 0, 0), "no target decodes in full");
+        assertEquals(1, decoder.subsampleFor(1000, 1000, 500, 500));
+        assertEquals(1, decoder.subsampleFor(1000, 1000, 400, 400));
+        assertEquals(2, decoder.subsampleFor(1000, 1000, 250, 250));
+        assertEquals(5, decoder.subsampleFor(1000, 1000, 100, 100));
+        assertEquals(2, decoder.subsampleFor(4000, 1000, 100, 250), "the tighter axis wins");
+    }
+
+    @Test
+    void subsamplesFurtherUnderThePixelCap() {
+        ImageFrameDecoder decoder = new ImageFrameDecoder();
+        decoder.setMaxPixels(250_000L);
+        assertEquals(2, decoder.subsampleFor(1000, 1000, 0, 0));
+        assertEquals(3, decoder.subsampleFor(1001, 1001, 0, 0), "rounded-up dimensions count against the cap");
+        assertEquals(5, decoder.subsampleFor(1000, 1000, 100, 100), "the target already fits");
+
+        decoder.setMaxPixels(1L);
+        assertEquals(1000, decoder.subsampleFor(1000, 10, 0, 0), "never coarser than the longest side");
+    }
+
+    @Test
+    void decodesAtTheChosenSubsample() throws IOException {
+        ImageFrameDecoder decoder = new ImageFrameDecoder();
+        ImageFrameDecoder.Decoded decoded = decoder.decode(png(400, 200), 50, 25);
+
+        assertEquals(4, decoded.subsample);
+        assertEquals(400, decoded.sourceWidth);
+        assertEquals(200, decoded.sourceHeight);
+        assertEquals(100, decoded.image.getWidth());
+        assertEquals(50, decoded.image.getHeight());
+    }
+
+    @Test
+    void decodesFinelyEnoughForARegion() throws IOException {
+        ImageFrameDecoder decoder = new ImageFrameDecoder();
+        byte[] bytes = png(400, 200);
+
+        ImageFrameDecoder.Decoded full = decoder.decode(bytes, ImageFrameSourceRegion.FULL, 25, 12);
+        ImageFrameDecoder.Decoded quarter = decoder.decode(bytes, ImageFrameSourceRegion.of(0, 0, 100, 50), 25, 12);
+
+        assertEquals(8, full.subsample);
+        assertEquals(2, quarter.subsample, "the region has to cover the target, not the whole source");
+        assertEquals(400, quarter.sourceWidth);
+    }
+
+    @Test
+    void enforcesTheByteCapAndIgnoresUnknownFormats() throws IOException {
+        ImageFrameDecoder decoder = new ImageFrameDecoder();
+        assertNull(decoder.decode("plain text".getBytes()));
+
+        byte[] bytes = png(64, 64);
+        decoder.setMaxBytes(bytes.length - 1L);
+        assertThrows(IOException.class, () -> decoder.decode(bytes));
+    }
+}
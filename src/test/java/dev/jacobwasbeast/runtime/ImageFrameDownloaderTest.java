@@ -0,0 +1,115 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageFrameDownloaderTest {
+    private static final String HOST = "127.0.0.1";
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger status = new AtomicInteger(500);
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private ImageFrameDownloader downloader;
+    private String url;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = ImageFrameImageCacheTest.png(0xFF0000);
+            int code = status.get();
+            exchange.getResponseHeaders().add("Content-Type", "image/png");
+            exchange.sendResponseHeaders(code, code == 200 ? body.length : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (code == 200) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        url = "http://" + HOST + ":" + server.getAddress().getPort() + "/image.png";
+        downloader = new ImageFrameDownloader(4, 2);
+        downloader.setHostRateLimit(0.0);
+        downloader.setRetryPolicy(0, 0L);
+    }
+
+    @AfterEach
+    void stop() {
+        downloader.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndFailsFast() throws Exception {
+        downloader.setCircuitBreaker(2, 60_000L);
+
+        assertThrows(IOException.class, () -> downloader.download(url, dir));
+        assertTrue(downloader.getOpenHosts().isEmpty());
+        assertThrows(IOException.class, () -> downloader.download(url, dir));
+        assertTrue(downloader.getOpenHosts().containsKey(HOST));
+
+        status.set(200);
+        IOException fast = assertThrows(IOException.class, () -> downloader.download(url, dir));
+        assertTrue(fast.getMessage().contains("unavailable"), fast.getMessage());
+        assertEquals(2, requests.get(), "an open circuit must not reach the host");
+    }
+
+    @Test
+    void letsATrialThroughAfterTheCooldownAndCloses() throws Exception {
+        downloader.setCircuitBreaker(1, 200L);
+        assertThrows(IOException.class, () -> downloader.download(url, dir));
+        assertTrue(downloader.getOpenHosts().containsKey(HOST));
+
+        Thread.sleep(300L);
+        assertTrue(downloader.getOpenHosts().isEmpty(), "cooldown passed, so the host is no longer reported open");
+
+        status.set(200);
+        ImageFrameImageCache.SourceBytes bytes = downloader.download(url, dir);
+        assertNotNull(bytes);
+        bytes.discard();
+        assertEquals(2, requests.get());
+        assertTrue(downloader.getOpenHosts().isEmpty());
+    }
+
+    @Test
+    void aFailedTrialReopensAtOnce() throws Exception {
+        downloader.setCircuitBreaker(3, 200L);
+        downloader.setRetryPolicy(5, 0L);
+        assertThrows(IOException.class, () -> downloader.download(url, dir));
+        assertEquals(3, requests.get(), "retries stop once the circuit opens");
+
+        Thread.sleep(300L);
+        assertThrows(IOException.class, () -> downloader.download(url, dir));
+        assertEquals(4, requests.get(), "only the trial goes out");
+        assertTrue(downloader.getOpenHosts().containsKey(HOST));
+    }
+
+    @Test
+    void clientErrorsDoNotCountAgainstTheHost() throws Exception {
+        downloader.setCircuitBreaker(2, 60_000L);
+        assertThrows(IOException.class, () -> downloader.download(url, dir));
+        status.set(404);
+        assertThrows(IOException.class, () -> downloader.download(url, dir));
+        status.set(500);
+        assertThrows(IOException.class, () -> downloader.download(url, dir));
+        assertTrue(downloader.getOpenHosts().isEmpty(), "the 404 reset the failure streak");
+    }
+}
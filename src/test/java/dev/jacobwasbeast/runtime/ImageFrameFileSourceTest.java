@@ -0,0 +1,66 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageFrameFileSourceTest {
+    @TempDir
+    Path dir;
+
+    private Path cache;
+    private ImageFrameFileSource source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cache = Files.createDirectories(dir.resolve("ImageFrames/images"));
+        Files.write(cache.resolve("blob.png"), ImageFrameImageCacheTest.png(0xFF0000));
+        source = new ImageFrameFileSource(new ImageFrameDecoder());
+        source.protect(cache);
+        source.protect(dir.resolve("ImageFrames/canvas"));
+    }
+
+    @Test
+    void readsFilesUnderTheRoot() throws IOException {
+        Path art = Files.createDirectories(dir.resolve("art"));
+        byte[] png = ImageFrameImageCacheTest.png(0x00FF00);
+        Files.write(art.resolve("logo.png"), png);
+        source.setRoot(art);
+
+        assertArrayEquals(png, source.load("file:logo.png", null).bytes.bytes);
+        assertArrayEquals(png, source.load("file:///logo.png", null).bytes.bytes);
+        assertThrows(IOException.class, () -> source.load("file:../ImageFrames/images/blob.png", null));
+    }
+
+    @Test
+    void refusesRootsOverlappingTheCaches() throws IOException {
+        assertThrows(IOException.class, () -> source.setRoot(cache));
+        assertThrows(IOException.class, () -> source.setRoot(dir.resolve("ImageFrames")), "a parent exposes it too");
+        assertThrows(IOException.class, () -> source.setRoot(cache.resolve("sub")), "so does a child");
+        assertThrows(IOException.class, () -> source.setRoot(dir.resolve("ImageFrames/canvas")),
+                "not created yet, still refused");
+        assertThrows(IOException.class, () -> source.load("file:blob.png", null), "a refused root turns file: off");
+
+        source.setRoot(dir.resolve("ImageFrames/uploads"));
+    }
+
+    @Test
+    void refusesLinksIntoTheCache() throws IOException {
+        Path art = Files.createDirectories(dir.resolve("art"));
+        Path link = art.resolve("cache");
+        try {
+            Files.createSymbolicLink(link, cache);
+        } catch (UnsupportedOperationException | IOException e) {
+            return;
+        }
+        assertThrows(IOException.class, () -> source.setRoot(link));
+        source.setRoot(art);
+        assertThrows(IOException.class, () -> source.load("file:cache/blob.png", null));
+    }
+}
@@ -0,0 +1,413 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageFrameImageCacheTest {
+    @TempDir
+    Path dir;
+
+    static byte[] png(int rgb) {
+        return png(8, rgb);
+    }
+
+    static byte[] png(int size, int rgb) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static ImageFrameImageCache.SourceFetcher serving(byte[] bytes, AtomicInteger calls) {
+        return previous -> {
+            calls.incrementAndGet();
+            return new ImageFrameImageCache.SourceBytes(bytes, "image/png");
+        };
+    }
+
+    static ImageFrameImageCache.SourceFetcher failing() {
+        return previous -> {
+            throw new IOException("not expected to fetch");
+        };
+    }
+
+    static int load(ImageFrameImageCache cache, String url, ImageFrameImageCache.SourceFetcher fetcher)
+            throws IOException {
+        try (ImageFrameSourceHandle handle = cache.acquire(url, fetcher)) {
+            return handle.image().getRGB(0, 0) & 0xFFFFFF;
+        }
+    }
+
+    @Test
+    void urlsServingTheSameBytesShareOneBlob() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        byte[] red = png(0xFF0000);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(0xFF0000, load(cache, "https://a.example/red.png", serving(red, calls)));
+        assertEquals(0xFF0000, load(cache, "https://b.example/copy.png", serving(red, calls)));
+
+        assertEquals(2, calls.get(), "each URL is fetched once");
+        assertEquals(2, cache.getUrlCount());
+        assertEquals(1, cache.getBlobCount());
+        assertEquals(1L, cache.getDedupHits());
+        assertEquals(cache.getContentHash("https://a.example/red.png"),
+                cache.getContentHash("https://b.example/copy.png"));
+        assertEquals(ImageFrameImageCache.sha256(red), cache.getContentHash("https://a.example/red.png"));
+    }
+
+    @Test
+    void memoryHitsDoNotFetchAgain() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        AtomicInteger calls = new AtomicInteger();
+        load(cache, "https://a.example/red.png", serving(png(0xFF0000), calls));
+        load(cache, "https://a.example/red.png", failing());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void concurrentAcquiresOfOneUrlShareOneFetch() throws Exception {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        String url = "https://a.example/slow.png";
+        byte[] red = png(0xFF0000);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ImageFrameImageCache.SourceFetcher blocking = previous -> {
+            calls.incrementAndGet();
+            fetching.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return new ImageFrameImageCache.SourceBytes(red, "image/png");
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> loads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                loads.add(pool.submit(() -> load(cache, url, blocking)));
+            }
+            assertTrue(fetching.await(10, TimeUnit.SECONDS));
+            assertEquals(1, cache.getStats().inFlight);
+            release.countDown();
+
+            for (Future<Integer> load : loads) {
+                assertEquals(0xFF0000, load.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1L, cache.getStats().downloads);
+        assertEquals(0, cache.getStats().inFlight);
+    }
+
+    @Test
+    void decodesASmallTargetFromAStoredMipLevel() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        String url = "https://a.example/big.png";
+        AtomicInteger calls = new AtomicInteger();
+        // Mips build on the calling thread by default, right after the first full decode.
+        cache.acquire(url, serving(png(256, 0x00FF00), calls), 256, 256).close();
+        String hash = cache.getContentHash(url);
+        assertTrue(Files.exists(dir.resolve("images").resolve(hash + ".mip3.png")));
+        cache.getMemoryTier().clear();
+
+        try (ImageFrameSourceHandle handle = cache.acquire(url, failing(), 16, 16)) {
+            assertEquals(32, handle.image().getWidth(), "level 3, still twice the target");
+            assertEquals(0x00FF00, handle.image().getRGB(16, 16) & 0xFFFFFF);
+        }
+        assertEquals(1L, cache.getStats().mipDecodes);
+        assertEquals(1, calls.get());
+        assertEquals(256, cache.getSourceSize(url).width, "the source size is still the original's");
+    }
+
+    @Test
+    void storingNewContentMovesTheAlias() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        String url = "https://a.example/image.png";
+        cache.store(url, new ImageFrameImageCache.SourceBytes(png(0xFF0000), "image/png"));
+        String first = cache.getContentHash(url);
+        cache.store(url, new ImageFrameImageCache.SourceBytes(png(0x0000FF), "image/png"));
+
+        assertNotEquals(first, cache.getContentHash(url));
+        assertEquals(1, cache.getUrlCount());
+        assertEquals(0x0000FF, load(cache, url, failing()));
+    }
+
+    @Test
+    void undecodableBytesAreNotCached() {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        byte[] junk = "not an image".getBytes();
+        assertThrows(IOException.class, () -> load(cache, "https://a.example/junk", serving(junk,
+                new AtomicInteger())));
+        assertNull(cache.getContentHash("https://a.example/junk"));
+        assertEquals(0, cache.getBlobCount());
+    }
+
+    @Test
+    void recordsTheSourceSizeOnFirstDecode() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        load(cache, "https://a.example/red.png", serving(png(0xFF0000), new AtomicInteger()));
+        assertNotNull(cache.getSourceSize("https://a.example/red.png"));
+        assertEquals(8, cache.getSourceSize("https://a.example/red.png").width);
+        assertNotNull(cache.getSourceFile("https://a.example/red.png"));
+    }
+
+    @Test
+    void replaysTheJournalOnStartupAndCompactsIt() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        cache.store("https://a.example/red.png", new ImageFrameImageCache.SourceBytes(png(0xFF0000), "image/png"));
+        Path journal = dir.resolve("image_cache.journal");
+        assertTrue(Files.exists(journal), "stores are appended, not snapshotted");
+        String hash = cache.getContentHash("https://a.example/red.png");
+
+        ImageFrameImageCache reopened = new ImageFrameImageCache(dir);
+
+        assertEquals(hash, reopened.getContentHash("https://a.example/red.png"));
+        assertEquals(1, reopened.getBlobCount());
+        assertFalse(Files.exists(journal), "replayed records are folded into the snapshot");
+        assertTrue(Files.exists(dir.resolve("image_cache.json")));
+        assertEquals(0xFF0000, load(reopened, "https://a.example/red.png", failing()));
+    }
+
+    @Test
+    void ignoresATornLastJournalLine() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        cache.store("https://a.example/red.png", new ImageFrameImageCache.SourceBytes(png(0xFF0000), "image/png"));
+        Files.writeString(dir.resolve("image_cache.journal"), "{\"op\":\"url\",\"key\":\"https://b.ex",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        ImageFrameImageCache reopened = new ImageFrameImageCache(dir);
+
+        assertNotNull(reopened.getContentHash("https://a.example/red.png"));
+        assertEquals(1, reopened.getUrlCount());
+    }
+
+    @Test
+    void compactsOnceTheJournalGrowsLong() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        byte[] red = png(0xFF0000);
+        for (int i = 0; i < 1100; i++) {
+            cache.store("https://a.example/" + i + ".png", new ImageFrameImageCache.SourceBytes(red, "image/png"));
+        }
+        Path journal = dir.resolve("image_cache.journal");
+        assertTrue(Files.exists(dir.resolve("image_cache.json")));
+        long lines = Files.exists(journal) ? Files.readAllLines(journal).size() : 0L;
+        assertTrue(lines < 1024, "journal was not compacted: " + lines + " records");
+
+        ImageFrameImageCache reopened = new ImageFrameImageCache(dir);
+        assertEquals(1100, reopened.getUrlCount());
+        assertEquals(1, reopened.getBlobCount());
+    }
+
+    @Test
+    void countsReferencesPerUrlAndPinsTheirContent() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        byte[] red = png(0xFF0000);
+        cache.store("https://a.example/red.png", new ImageFrameImageCache.SourceBytes(red, "image/png"));
+        cache.store("https://b.example/red.png", new ImageFrameImageCache.SourceBytes(red, "image/png"));
+        String hash = cache.getContentHash("https://a.example/red.png");
+
+        cache.retainUrl("https://a.example/red.png");
+        cache.retainUrl("https://a.example/red.png");
+        cache.retainUrl("https://b.example/red.png");
+        assertEquals(2, cache.getReferenceCount("https://a.example/red.png"));
+        assertTrue(cache.isPinned(hash));
+
+        cache.releaseUrl("https://a.example/red.png");
+        cache.releaseUrl("https://a.example/red.png");
+        assertEquals(0, cache.getReferenceCount("https://a.example/red.png"));
+        assertTrue(cache.isPinned(hash), "the other URL still holds the shared blob");
+
+        cache.releaseUrl("https://b.example/red.png");
+        cache.releaseUrl("https://b.example/red.png");
+        assertEquals(0, cache.getReferenceCount("https://b.example/red.png"));
+        assertFalse(cache.isPinned(hash));
+    }
+
+    @Test
+    void movesThePinWhenTheUrlChangesContent() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        String url = "https://a.example/image.png";
+        cache.store(url, new ImageFrameImageCache.SourceBytes(png(0xFF0000), "image/png"));
+        String before = cache.getContentHash(url);
+        cache.retainUrl(url);
+
+        cache.store(url, new ImageFrameImageCache.SourceBytes(png(0x0000FF), "image/png"));
+
+        assertFalse(cache.isPinned(before));
+        assertTrue(cache.isPinned(cache.getContentHash(url)));
+    }
+
+    @Test
+    void sweepKeepsPinnedBlobsOverBudget() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        cache.store("https://a.example/red.png", new ImageFrameImageCache.SourceBytes(png(0xFF0000), "image/png"));
+        cache.store("https://a.example/blue.png", new ImageFrameImageCache.SourceBytes(png(0x0000FF), "image/png"));
+        cache.retainUrl("https://a.example/red.png");
+        cache.setDiskCacheMaxBytes(0L);
+
+        cache.sweepDisk();
+
+        assertNotNull(cache.getContentHash("https://a.example/red.png"));
+        assertNotNull(cache.getSourceFile("https://a.example/red.png"));
+        assertNull(cache.getContentHash("https://a.example/blue.png"));
+        assertEquals(1, cache.getBlobCount());
+        assertEquals(1L, cache.getDiskEvictions());
+    }
+
+    @Test
+    void evictsEveryUrlSharingABlob() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        byte[] blue = png(0x0000FF);
+        cache.store("https://a.example/blue.png", new ImageFrameImageCache.SourceBytes(blue, "image/png"));
+        cache.store("https://b.example/blue.png", new ImageFrameImageCache.SourceBytes(blue, "image/png"));
+        cache.store("https://b.example/blue.png", new ImageFrameImageCache.SourceBytes(png(0xFF0000), "image/png"));
+        cache.store("https://c.example/blue.png", new ImageFrameImageCache.SourceBytes(blue, "image/png"));
+        cache.retainUrl("https://b.example/blue.png");
+        cache.setDiskCacheMaxBytes(0L);
+
+        cache.sweepDisk();
+
+        assertNull(cache.getContentHash("https://a.example/blue.png"));
+        assertNull(cache.getContentHash("https://c.example/blue.png"));
+        assertNotNull(cache.getContentHash("https://b.example/blue.png"), "moved to other content before the sweep");
+        assertEquals(1, cache.getUrlCount());
+    }
+
+    @Test
+    void journalsSweepRemovalsInsteadOfCompacting() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        cache.store("https://a.example/red.png", new ImageFrameImageCache.SourceBytes(png(0xFF0000), "image/png"));
+        cache.store("https://a.example/blue.png", new ImageFrameImageCache.SourceBytes(png(0x0000FF), "image/png"));
+        ImageFrameImageCache reopened = new ImageFrameImageCache(dir);
+        reopened.retainUrl("https://a.example/red.png");
+        reopened.setDiskCacheMaxBytes(0L);
+
+        reopened.sweepDisk();
+
+        assertTrue(Files.exists(dir.resolve("image_cache.journal")), "the eviction was appended");
+        ImageFrameImageCache again = new ImageFrameImageCache(dir);
+        assertNull(again.getContentHash("https://a.example/blue.png"));
+        assertNotNull(again.getContentHash("https://a.example/red.png"));
+        assertEquals(1, again.getBlobCount());
+    }
+
+    private static ImageFrameImageCache.SourceBytes tagged(ImageFrameImageCache cache, byte[] bytes, String etag)
+            throws IOException {
+        Path file = Files.createTempFile(cache.getDownloadDir(), "download", ".tmp");
+        Files.write(file, bytes);
+        return ImageFrameImageCache.SourceBytes.ofFile(file, "image/png", bytes.length,
+                ImageFrameImageCache.sha256(bytes), etag, "Mon, 05 Oct 2026 10:00:00 GMT");
+    }
+
+    @Test
+    void revalidatesStaleCopiesWithTheirValidators() throws Exception {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        String url = "https://a.example/red.png";
+        cache.store(url, tagged(cache, png(0xFF0000), "\"v1\""));
+        String hash = cache.getContentHash(url);
+        cache.setRevalidateAfterMillis(200L);
+        Thread.sleep(250L);
+        assertTrue(cache.needsRevalidation(url));
+
+        AtomicReference<ImageFrameImageCache.Validators> sent = new AtomicReference<>();
+        ImageFrameImageCache.SourceFetcher unchanged = previous -> {
+            sent.set(previous);
+            return ImageFrameImageCache.SourceBytes.notModified("\"v2\"", null);
+        };
+        assertEquals(0xFF0000, load(cache, url, unchanged));
+
+        assertEquals("\"v1\"", sent.get().etag);
+        assertEquals("Mon, 05 Oct 2026 10:00:00 GMT", sent.get().lastModified);
+        assertEquals(hash, cache.getContentHash(url));
+        assertEquals(1L, cache.getStats().revalidations);
+        assertEquals(1L, cache.getStats().notModified);
+
+        assertEquals(hash, cache.revalidateNow(url, unchanged));
+        assertEquals("\"v2\"", sent.get().etag, "validators from a 304 replace the stored ones");
+        assertEquals("Mon, 05 Oct 2026 10:00:00 GMT", sent.get().lastModified, "missing ones are kept");
+    }
+
+    @Test
+    void changedContentMovesTheAliasOnRevalidation() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        String url = "https://a.example/image.png";
+        cache.store(url, tagged(cache, png(0xFF0000), "\"v1\""));
+        String before = cache.getContentHash(url);
+        byte[] blue = png(0x0000FF);
+
+        String after = cache.revalidateNow(url, previous -> tagged(cache, blue, "\"v2\""));
+
+        assertNotEquals(before, after);
+        assertEquals(ImageFrameImageCache.sha256(blue), after);
+        assertEquals(after, cache.getContentHash(url));
+        assertEquals(0x0000FF, load(cache, url, failing()));
+    }
+
+    @Test
+    void keepsTheCopyWhenTheOriginIsUnreachable() throws Exception {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        String url = "https://a.example/red.png";
+        cache.store(url, tagged(cache, png(0xFF0000), "\"v1\""));
+        String hash = cache.getContentHash(url);
+        cache.setRevalidateAfterMillis(200L);
+        Thread.sleep(250L);
+
+        assertEquals(0xFF0000, load(cache, url, failing()));
+        assertEquals(hash, cache.getContentHash(url));
+        assertFalse(cache.needsRevalidation(url), "the copy is trusted for another interval");
+        assertEquals(0L, cache.getStats().notModified);
+    }
+
+    @Test
+    void rejectsChangedBytesThatAreNotAnImage() throws IOException {
+        ImageFrameImageCache cache = new ImageFrameImageCache(dir);
+        String url = "https://a.example/red.png";
+        cache.store(url, tagged(cache, png(0xFF0000), "\"v1\""));
+        String hash = cache.getContentHash(url);
+
+        assertThrows(IOException.class, () -> cache.revalidateNow(url,
+                previous -> new ImageFrameImageCache.SourceBytes("<html>".getBytes(), "text/html")));
+        assertEquals(hash, cache.getContentHash(url));
+    }
+}
@@ -0,0 +1,94 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class ImageFrameMemoryCacheTest {
+    // A 10x10 TYPE_INT_ARGB raster is 100 ints.
+    private static final long IMAGE_BYTES = 400L;
+
+    private static BufferedImage image() {
+        return new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Test
+    void accountsRasterBytes() {
+        assertEquals(IMAGE_BYTES, ImageFrameMemoryCache.estimateBytes(image()));
+        assertEquals(100L, ImageFrameMemoryCache.estimateBytes(
+                new BufferedImage(10, 10, BufferedImage.TYPE_BYTE_GRAY)));
+
+        ImageFrameMemoryCache cache = new ImageFrameMemoryCache(10 * IMAGE_BYTES);
+        cache.put("a", image(), null);
+        cache.put("b", image(), null);
+        assertEquals(2 * IMAGE_BYTES, cache.getResidentBytes());
+
+        cache.put("a", image(), null);
+        assertEquals(2 * IMAGE_BYTES, cache.getResidentBytes(), "replacing a key must not count it twice");
+
+        cache.remove("b");
+        assertEquals(IMAGE_BYTES, cache.getResidentBytes());
+        cache.clear();
+        assertEquals(0L, cache.getResidentBytes());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFirst() {
+        ImageFrameMemoryCache cache = new ImageFrameMemoryCache(2 * IMAGE_BYTES);
+        cache.put("a", image(), null);
+        cache.put("b", image(), null);
+        assertNotNull(cache.acquire("a"));
+
+        cache.put("c", image(), null);
+
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+        assertEquals(1L, cache.getEvictions());
+        assertEquals(2 * IMAGE_BYTES, cache.getResidentBytes());
+    }
+
+    @Test
+    void keepsPinnedEntriesWhileUnpinnedOnesCanGo() {
+        ImageFrameMemoryCache cache = new ImageFrameMemoryCache(2 * IMAGE_BYTES);
+        cache.setPinFilter("a"::equals);
+        cache.put("a", image(), null);
+        cache.put("b", image(), null);
+        cache.put("c", image(), null);
+
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+
+        cache.setMaxBytes(0L);
+        assertEquals(0, cache.size(), "pinned entries still go once nothing else is left");
+    }
+
+    @Test
+    void skipsImagesLargerThanTheBudget() {
+        ImageFrameMemoryCache cache = new ImageFrameMemoryCache(IMAGE_BYTES - 1);
+        cache.put("a", image(), null);
+        assertFalse(cache.contains("a"));
+        assertEquals(0L, cache.getResidentBytes());
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        ImageFrameMemoryCache cache = new ImageFrameMemoryCache(IMAGE_BYTES);
+        BufferedImage img = image();
+        cache.put("a", img, null);
+
+        assertSame(img, cache.acquire("a").image());
+        assertNull(cache.acquire("missing"));
+        assertNotNull(cache.acquireQuiet("a"));
+
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+    }
+}
@@ -0,0 +1,82 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class ImageFrameMipPyramidTest {
+    @ParameterizedTest(name = "subsample {0} from levels {1}..{2} -> {3}")
+    @CsvSource({
+            "1, 1, 4, 0",
+            "2, 1, 4, 1",
+            "3, 1, 4, 1",
+            "4, 1, 4, 2",
+            "16, 1, 4, 4",
+            "64, 1, 4, 4",
+            "2, 2, 4, 0",
+            "4, 2, 4, 2",
+            "8, 0, 4, 0",
+            "8, 3, 2, 0",
+    })
+    void picksTheDeepestLevelStillFineEnough(int requiredSubsample, int minLevel, int maxLevel, int expected) {
+        assertEquals(expected, ImageFrameMipPyramid.levelFor(requiredSubsample, minLevel, maxLevel));
+    }
+
+    @ParameterizedTest(name = "subsample {0} -> level {1}")
+    @CsvSource({
+            "1, 1",
+            "2, 1",
+            "3, 2",
+            "4, 2",
+            "5, 3",
+            "8, 3",
+            "16, 4",
+    })
+    void startsAtTheFirstLevelASubsampledDecodeCanProduce(int subsample, int expected) {
+        assertEquals(expected, ImageFrameMipPyramid.firstLevel(subsample));
+    }
+
+    @ParameterizedTest(name = "{0}x{1} -> {2}")
+    @CsvSource({
+            "63, 1000, 0",
+            "64, 64, 1",
+            "127, 127, 1",
+            "128, 64, 1",
+            "256, 256, 3",
+            "4096, 100, 1",
+            "1920, 1080, 5",
+    })
+    void stopsBeforeAnEdgeDropsUnderTheMinimum(int width, int height, int expected) {
+        assertEquals(expected, ImageFrameMipPyramid.maxLevel(width, height));
+    }
+
+    @Test
+    void buildsEachLevelAtItsRoundedUpSize() {
+        List<BufferedImage> levels = ImageFrameMipPyramid.build(
+                new BufferedImage(301, 150, BufferedImage.TYPE_INT_RGB), 301, 150, 1, 3);
+
+        assertEquals(3, levels.size());
+        int[][] sizes = {{151, 75}, {76, 38}, {38, 19}};
+        for (int i = 0; i < sizes.length; i++) {
+            assertEquals(sizes[i][0], levels.get(i).getWidth(), "width of level " + (i + 1));
+            assertEquals(sizes[i][1], levels.get(i).getHeight(), "height of level " + (i + 1));
+        }
+    }
+
+    @Test
+    void buildsFromASubsampledDecode() {
+        // A 1024x512 source decoded at subsample 4; level 2 is that decode's own size.
+        List<BufferedImage> levels = ImageFrameMipPyramid.build(
+                new BufferedImage(256, 128, BufferedImage.TYPE_INT_ARGB), 1024, 512, 2, 4);
+
+        assertEquals(3, levels.size());
+        assertEquals(256, levels.get(0).getWidth());
+        assertEquals(128, levels.get(1).getWidth());
+        assertEquals(32, levels.get(2).getHeight());
+        assertEquals(BufferedImage.TYPE_INT_ARGB, levels.get(2).getType(), "alpha is kept");
+    }
+}
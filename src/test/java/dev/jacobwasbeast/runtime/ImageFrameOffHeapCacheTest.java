@@ -0,0 +1,90 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class ImageFrameOffHeapCacheTest {
+    // 10x10 packed ARGB ints.
+    private static final long IMAGE_BYTES = 400L;
+
+    private static BufferedImage image(int argb) {
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void keepsALeasedEntryReadableAfterEviction() {
+        ImageFrameOffHeapCache cache = new ImageFrameOffHeapCache(IMAGE_BYTES);
+        cache.put("a", image(0xFFFF0000), null);
+        ImageFrameSourceHandle handle = cache.acquire("a");
+
+        cache.put("b", image(0xFF0000FF), null);
+
+        assertFalse(cache.contains("a"));
+        assertEquals(1L, cache.getEvictions());
+        assertEquals(IMAGE_BYTES, cache.getResidentBytes());
+        assertEquals(2 * IMAGE_BYTES, cache.getAllocatedBytes(), "the leased buffer is still owned");
+        assertEquals(0xFFFF0000, handle.image().getRGB(9, 9));
+
+        handle.close();
+
+        assertEquals(IMAGE_BYTES, cache.getAllocatedBytes());
+        assertEquals(0, cache.getActiveLeases());
+        assertThrows(IllegalStateException.class, handle::image);
+    }
+
+    @Test
+    void freesEverythingOnceTheLastLeaseCloses() {
+        ImageFrameOffHeapCache cache = new ImageFrameOffHeapCache(IMAGE_BYTES);
+        cache.put("a", image(0xFF00FF00), null);
+        ImageFrameSourceHandle first = cache.acquire("a");
+        ImageFrameSourceHandle second = cache.acquireQuiet("a");
+        assertEquals(2, cache.getActiveLeases());
+
+        cache.clear();
+        first.close();
+        first.close();
+        assertEquals(IMAGE_BYTES, cache.getAllocatedBytes(), "one lease is still open");
+        assertEquals(0xFF00FF00, second.image().getRGB(0, 0));
+
+        second.close();
+
+        assertEquals(0L, cache.getAllocatedBytes());
+        assertEquals(0L, cache.getResidentBytes());
+        assertEquals(0, cache.getActiveLeases());
+        assertNull(cache.acquire("a"));
+    }
+
+    @Test
+    void detachCopiesASameSizeView() {
+        ImageFrameOffHeapCache cache = new ImageFrameOffHeapCache(IMAGE_BYTES);
+        cache.put("a", image(0xFF123456), null);
+        BufferedImage copy;
+        try (ImageFrameSourceHandle handle = cache.acquire("a")) {
+            BufferedImage view = handle.image();
+            copy = handle.detach(view);
+            assertNotSame(view.getRaster().getDataBuffer(), copy.getRaster().getDataBuffer());
+
+            BufferedImage unrelated = image(0xFF000000);
+            assertSame(unrelated, handle.detach(unrelated), "images that share nothing are returned as they are");
+        }
+        cache.clear();
+
+        assertEquals(0L, cache.getAllocatedBytes());
+        assertEquals(10, copy.getWidth());
+        assertEquals(10, copy.getHeight());
+        assertEquals(0xFF123456, copy.getRGB(5, 5));
+    }
+}
@@ -0,0 +1,83 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class ImageFrameSourceRegionTest {
+    @Test
+    void parsesAndPrintsTheSameText() {
+        ImageFrameSourceRegion region = ImageFrameSourceRegion.parse(" 10, 20 30 40 ");
+        assertEquals(ImageFrameSourceRegion.of(10, 20, 30, 40), region);
+        assertEquals("10, 20, 30, 40", region.toString());
+        assertEquals(region, ImageFrameSourceRegion.parse(region.toString()));
+
+        assertSame(ImageFrameSourceRegion.FULL, ImageFrameSourceRegion.parse("  "));
+        assertSame(ImageFrameSourceRegion.FULL, ImageFrameSourceRegion.of(5, 5, 0, 10));
+        assertEquals("", ImageFrameSourceRegion.FULL.toString());
+    }
+
+    @Test
+    void rejectsMalformedRegions() {
+        assertThrows(IllegalArgumentException.class, () -> ImageFrameSourceRegion.parse("1, 2, 3"));
+        assertThrows(IllegalArgumentException.class, () -> ImageFrameSourceRegion.parse("1, 2, 3, x"));
+        assertThrows(IllegalArgumentException.class, () -> ImageFrameSourceRegion.parse("-1, 0, 3, 3"));
+        assertThrows(IllegalArgumentException.class, () -> ImageFrameSourceRegion.parse("0, 0, 0, 3"));
+    }
+
+    @Test
+    void clampsNegativeOriginsInOf() {
+        ImageFrameSourceRegion region = ImageFrameSourceRegion.of(-5, -7, 10, 10);
+        assertEquals(0, region.x);
+        assertEquals(0, region.y);
+    }
+
+    @Test
+    void cutsTheRegionAndClipsItAtTheEdge() throws IOException {
+        BufferedImage image = new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB);
+        assertSame(image, ImageFrameSourceRegion.FULL.apply(image, 100, 50));
+
+        BufferedImage cut = ImageFrameSourceRegion.of(10, 5, 20, 10).apply(image, 100, 50);
+        assertEquals(20, cut.getWidth());
+        assertEquals(10, cut.getHeight());
+
+        BufferedImage clipped = ImageFrameSourceRegion.of(90, 40, 50, 50).apply(image, 100, 50);
+        assertEquals(10, clipped.getWidth());
+        assertEquals(10, clipped.getHeight());
+    }
+
+    @Test
+    void failsForARegionOutsideTheImage() {
+        BufferedImage image = new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB);
+        assertThrows(IOException.class, () -> ImageFrameSourceRegion.of(100, 0, 10, 10).apply(image, 100, 50));
+        assertThrows(IOException.class, () -> ImageFrameSourceRegion.of(0, 60, 10, 10).apply(image, 100, 50));
+    }
+
+    @Test
+    void scalesOntoASubsampledDecode() throws IOException {
+        // A 1000x500 source decoded at subsample 4 is 250x125.
+        BufferedImage decoded = new BufferedImage(250, 125, BufferedImage.TYPE_INT_ARGB);
+        decoded.setRGB(25, 12, 0xFFFF0000);
+
+        BufferedImage cut = ImageFrameSourceRegion.of(100, 48, 200, 100).apply(decoded, 1000, 500);
+
+        assertEquals(50, cut.getWidth());
+        assertEquals(25, cut.getHeight());
+        assertEquals(0xFFFF0000, cut.getRGB(0, 0), "the region starts at the scaled origin");
+    }
+
+    @Test
+    void scalesTheDecodeTargetUpForARegion() {
+        ImageFrameSourceRegion quarter = ImageFrameSourceRegion.of(0, 0, 250, 125);
+        assertEquals(400, quarter.scaleTargetWidth(100, 1000));
+        assertEquals(200, quarter.scaleTargetHeight(50, 500));
+        assertEquals(100, ImageFrameSourceRegion.FULL.scaleTargetWidth(100, 1000));
+        assertEquals(0, quarter.scaleTargetWidth(100, 0), "unknown source size decodes in full");
+        assertTrue(quarter.scaleTargetWidth(Integer.MAX_VALUE, Integer.MAX_VALUE) > 0);
+    }
+}
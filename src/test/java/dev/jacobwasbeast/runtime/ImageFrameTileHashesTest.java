@@ -0,0 +1,65 @@
+package dev.jacobwasbeast.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class ImageFrameTileHashesTest {
+    private static BufferedImage canvas() {
+        BufferedImage canvas = new BufferedImage(64, 32, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = canvas.createGraphics();
+        g.setColor(Color.RED);
+        g.fillRect(0, 0, 32, 32);
+        g.setColor(Color.BLUE);
+        g.fillRect(32, 0, 32, 32);
+        g.dispose();
+        return canvas;
+    }
+
+    @Test
+    void hashesPixelsNotLayout() {
+        BufferedImage canvas = canvas();
+        BufferedImage sub = canvas.getSubimage(32, 0, 32, 32);
+        BufferedImage copy = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(sub, 0, 0, null);
+        g.dispose();
+
+        assertEquals(ImageFrameTileHashes.pixelHash(sub), ImageFrameTileHashes.pixelHash(copy),
+                "the same opaque pixels in another raster layout");
+        assertNotEquals(ImageFrameTileHashes.pixelHash(sub),
+                ImageFrameTileHashes.pixelHash(canvas.getSubimage(0, 0, 32, 32)));
+    }
+
+    @Test
+    void detectsASinglePixelChange() {
+        BufferedImage canvas = canvas();
+        long before = ImageFrameTileHashes.pixelHash(canvas.getSubimage(0, 0, 32, 32));
+        canvas.setRGB(31, 31, 0xFFFF0001);
+        assertNotEquals(before, ImageFrameTileHashes.pixelHash(canvas.getSubimage(0, 0, 32, 32)));
+    }
+
+    @Test
+    void onlyTilesThatChangedNeedWriting() {
+        ImageFrameTileHashes hashes = new ImageFrameTileHashes();
+        BufferedImage canvas = canvas();
+        hashes.record("left", ImageFrameTileHashes.pixelHash(canvas.getSubimage(0, 0, 32, 32)));
+        hashes.record("right", ImageFrameTileHashes.pixelHash(canvas.getSubimage(32, 0, 32, 32)));
+
+        canvas.setRGB(40, 10, 0xFF00FF00);
+
+        assertTrue(hashes.matches("left", ImageFrameTileHashes.pixelHash(canvas.getSubimage(0, 0, 32, 32))));
+        assertFalse(hashes.matches("right", ImageFrameTileHashes.pixelHash(canvas.getSubimage(32, 0, 32, 32))));
+        assertFalse(hashes.matches("new", 0L), "unknown tiles are always written");
+
+        long left = ImageFrameTileHashes.pixelHash(canvas.getSubimage(0, 0, 32, 32));
+        hashes.forget("left");
+        assertFalse(hashes.matches("left", left), "removed tiles are written again");
+    }
+}